@@ -0,0 +1,182 @@
+package AICp;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Picks a solver from cheap puzzle features and the latency each solver has
+ * shown on puzzles with similar features. Features are the clue ratio, the
+ * mean candidate entropy (log2 of each empty cell's candidate count) and the
+ * share of bivalue cells, each bucketed coarsely. Every solve updates a
+ * moving average for its solver and bucket; the fastest solver is used, with
+ * a small share of solves spent trying the others so the table can follow
+ * changes.
+ *
+ * Only complete solvers are candidates; simulated annealing and the genetic
+ * algorithm fail too often on Medium and Hard puzzles to be worth routing to.
+ * Plain backtracking is only considered for 9x9, where its worst case is
+ * seconds rather than hours.
+ */
+public class AdaptiveSolverSelector implements SolverRegistry.Solver {
+    private static final String[] CANDIDATES_9 = {"MRV", "SAT", "Constraint Programming", "Backtracking"};
+    private static final String[] CANDIDATES_LARGE = {"SAT", "MRV"};
+    private static final double EXPLORE_RATE = 0.05;
+    private static final double SMOOTHING = 0.2;
+
+    private static final AdaptiveSolverSelector SHARED = new AdaptiveSolverSelector();
+
+    // Feature bucket -> per-candidate latency statistics
+    private final Map<Integer, Stats[]> table = new ConcurrentHashMap<>();
+    // Exploration draws; null for the calling thread's ThreadLocalRandom
+    private final SolverRandom random;
+
+    public AdaptiveSolverSelector() {
+        this(null);
+    }
+
+    /**
+     * A selector that explores with draws from random, so a run on one
+     * thread makes the same exploration choices every time. Unlike the
+     * shared selector it is not thread-safe.
+     */
+    public AdaptiveSolverSelector(SolverRandom random) {
+        this.random = random;
+    }
+
+    public static AdaptiveSolverSelector shared() {
+        return SHARED;
+    }
+
+    private static final class Stats {
+        private double meanNanos;
+        private long samples;
+
+        synchronized void record(long nanos) {
+            meanNanos = samples == 0 ? nanos : meanNanos + SMOOTHING * (nanos - meanNanos);
+            samples++;
+        }
+
+        synchronized double mean() {
+            return samples == 0 ? Double.NaN : meanNanos;
+        }
+
+        synchronized long samples() {
+            return samples;
+        }
+    }
+
+    @Override
+    public boolean solve(int[][] board) {
+        int bucket = bucket(board);
+        String[] candidates = candidates(board.length);
+        Stats[] stats = table.computeIfAbsent(bucket, b -> newStats(candidates.length));
+        int choice = choose(stats);
+        long start = System.nanoTime();
+        boolean solved = SolverRegistry.get(candidates[choice]).solve(board);
+        stats[choice].record(System.nanoTime() - start);
+        return solved;
+    }
+
+    /**
+     * Name of the solver the next solve of this board would most likely use.
+     */
+    public String select(int[][] board) {
+        Stats[] stats = table.get(bucket(board));
+        return candidates(board.length)[stats == null ? 0 : fastest(stats)];
+    }
+
+    private static String[] candidates(int size) {
+        return size == 9 ? CANDIDATES_9 : CANDIDATES_LARGE;
+    }
+
+    private static Stats[] newStats(int n) {
+        Stats[] stats = new Stats[n];
+        for (int i = 0; i < n; i++) stats[i] = new Stats();
+        return stats;
+    }
+
+    private int choose(Stats[] stats) {
+        RandomGenerator random = this.random != null ? this.random : ThreadLocalRandom.current();
+        return random.nextDouble() < EXPLORE_RATE ? random.nextInt(stats.length) : fastest(stats);
+    }
+
+    // Candidates without samples lose to any that have them; the first candidate is the default
+    private static int fastest(Stats[] stats) {
+        int best = 0;
+        double bestMean = stats[0].mean();
+        for (int i = 1; i < stats.length; i++) {
+            double mean = stats[i].mean();
+            if (!Double.isNaN(mean) && (Double.isNaN(bestMean) || mean < bestMean)) {
+                best = i;
+                bestMean = mean;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Feature bucket of a board: size, clue ratio, mean candidate entropy and
+     * bivalue share, each reduced to a few levels and packed into one int.
+     */
+    static int bucket(int[][] board) {
+        int size = board.length;
+        int box = SudokuLogicBackTracking.boxSize(size);
+        long[] rows = new long[size], cols = new long[size], boxes = new long[size];
+        int clues = 0;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                if (board[r][c] == 0) continue;
+                long bit = 1L << (board[r][c] - 1);
+                rows[r] |= bit;
+                cols[c] |= bit;
+                boxes[r / box * box + c / box] |= bit;
+                clues++;
+            }
+        }
+        long all = SudokuLogicBackTracking.allDigits(size);
+        double entropy = 0;
+        int bivalue = 0;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                if (board[r][c] != 0) continue;
+                int candidates = Long.bitCount(all & ~(rows[r] | cols[c] | boxes[r / box * box + c / box]));
+                if (candidates > 0) entropy += Math.log(candidates) / Math.log(2);
+                if (candidates == 2) bivalue++;
+            }
+        }
+        int empty = size * size - clues;
+        double clueRatio = (double) clues / (size * size);
+        double meanEntropy = empty == 0 ? 0 : entropy / empty;
+        double bivalueShare = empty == 0 ? 0 : (double) bivalue / empty;
+
+        int clueLevel = clueRatio < 0.3 ? 0 : clueRatio < 0.4 ? 1 : clueRatio < 0.5 ? 2 : 3;
+        int entropyLevel = meanEntropy < 1 ? 0 : meanEntropy < 1.5 ? 1 : meanEntropy < 2 ? 2 : 3;
+        int bivalueLevel = bivalueShare < 0.1 ? 0 : bivalueShare < 0.25 ? 1 : 2;
+        return ((size * 4 + clueLevel) * 4 + entropyLevel) * 3 + bivalueLevel;
+    }
+
+    /**
+     * One line per bucket with each candidate's mean latency and sample count.
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Integer, Stats[]> entry : table.entrySet()) {
+            int bucket = entry.getKey();
+            int size = bucket / 48;
+            String[] names = candidates(size);
+            sb.append(size).append('x').append(size)
+                    .append(" clues=").append(bucket / 12 % 4)
+                    .append(" entropy=").append(bucket / 3 % 4)
+                    .append(" bivalue=").append(bucket % 3).append(':');
+            Stats[] stats = entry.getValue();
+            for (int i = 0; i < stats.length; i++) {
+                if (stats[i].samples() == 0) sb.append(' ').append(names[i]).append(" -");
+                else sb.append(String.format(" %s %.2fms (%d)", names[i], stats[i].mean() / 1e6, stats[i].samples()));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
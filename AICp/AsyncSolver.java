@@ -0,0 +1,114 @@
+package AICp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+/**
+ * Non-blocking front end for the solvers. Each call copies its input, runs
+ * the named solver on a dedicated pool of CPU threads and returns a
+ * CompletableFuture holding the solution, or an empty Optional when the
+ * puzzle has none.
+ *
+ * The pool has a fixed number of threads and a bounded queue; a call that
+ * finds the queue full fails with RejectedExecutionException rather than
+ * queueing without limit. A timeout or cancel completes the future at once
+ * and removes the task if it has not started. A running search is
+ * interrupted and stops within a few thousand nodes; simulated annealing and
+ * the genetic algorithm do not poll for interrupts, so they finish in the
+ * background and their result is dropped.
+ */
+public class AsyncSolver implements AutoCloseable {
+    private static volatile AsyncSolver shared;
+
+    private final ThreadPoolExecutor executor;
+
+    public AsyncSolver(int threads, int queueCapacity) {
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new ThreadFactory() {
+                    private int next;
+
+                    @Override
+                    public synchronized Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "async-solver-" + next++);
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+    }
+
+    /**
+     * Process-wide instance with one thread per core.
+     */
+    public static AsyncSolver shared() {
+        if (shared == null) {
+            synchronized (AsyncSolver.class) {
+                if (shared == null) {
+                    int cores = Runtime.getRuntime().availableProcessors();
+                    shared = new AsyncSolver(cores, cores * 64);
+                }
+            }
+        }
+        return shared;
+    }
+
+    public CompletableFuture<Optional<Board>> solve(String solverName, int[][] board) {
+        return solve(solverName, Board.of(board));
+    }
+
+    public CompletableFuture<Optional<Board>> solve(String solverName, Board board) {
+        SolverRegistry.get(solverName); // fail fast on unknown names
+        Board input = board.copy(); // the caller may keep editing their board
+        CompletableFuture<Optional<Board>> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                if (result.isDone()) return; // timed out or cancelled while queued
+                try {
+                    boolean solved = input.solveWith(grid -> SolverRegistry.solve(solverName, grid));
+                    result.complete(solved ? Optional.of(input.freeze()) : Optional.empty());
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        result.whenComplete((value, error) -> {
+            if (error != null) task.cancel(true);
+        });
+        return result;
+    }
+
+    public CompletableFuture<Optional<Board>> solve(String solverName, Board board, long timeout, TimeUnit unit) {
+        return solve(solverName, board).orTimeout(timeout, unit);
+    }
+
+    /**
+     * Solves all boards and completes with the results in input order.
+     */
+    public CompletableFuture<List<Optional<Board>>> solveAll(String solverName, List<Board> boards) {
+        List<CompletableFuture<Optional<Board>>> futures = new ArrayList<>(boards.size());
+        for (Board board : boards) {
+            futures.add(solve(solverName, board));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            List<Optional<Board>> results = new ArrayList<>(futures.size());
+            for (CompletableFuture<Optional<Board>> future : futures) {
+                results.add(future.join());
+            }
+            return results;
+        });
+    }
+
+    public int threads() {
+        return executor.getCorePoolSize();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
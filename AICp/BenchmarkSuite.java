@@ -0,0 +1,341 @@
+package AICp;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * End-to-end benchmark of every solver on a large seeded set of generated
+ * puzzles, the automated version of the README's results table. For each
+ * solver and difficulty it records the success rate, median, p99 and max
+ * latency and the bytes allocated per solve, prints them, and compares them
+ * with a baseline file; any regression beyond the threshold, or a result
+ * with no baseline row, makes the run exit with status 1, and a missing
+ * baseline with status 2 before anything is solved. Without --solvers a
+ * comparison runs the solvers the baseline has rows for, and a recording
+ * runs every registered solver.
+ *
+ * Puzzles come from the generator with seeds derived from --seed, and the
+ * stochastic solvers are seeded per puzzle, so two runs see the same work.
+ * Each set is solved --rounds times and every timing and allocation figure
+ * is the best of the rounds, which filters out pauses from GC, JIT
+ * compilation and other processes. The solved count is the worst round's,
+ * so a solver that fails in any round is not credited with the success of
+ * another. p99 is judged against its own, looser threshold.
+ *
+ * Solves bypass the canonical cache and are given no nogood table, so
+ * repeated rounds do not time dead ends cached by earlier ones. For the
+ * same reason "Auto" gets a fresh selector, seeded from --seed, for the
+ * warmup and for each round, rather than the shared one that learns from
+ * every solve in the JVM.
+ * A solve that exceeds --timeout-ms
+ * counts as a failure; searches are interrupted, while annealing and the
+ * genetic algorithm are waited for so they do not slow the solves after
+ * them.
+ *
+ * Usage: java AICp.BenchmarkSuite [--puzzles 1000] [--box 3] [--seed 1]
+ *            [--solvers MRV,SAT,...] [--difficulties 0,1,2] [--warmup 50]
+ *            [--rounds 3] [--timeout-ms 10000] [--baseline benchmarks/baseline-9x9.tsv]
+ *            [--threshold 0.10] [--p99-threshold 0.25] [--record]
+ */
+public class BenchmarkSuite {
+    private static final String HEADER = "# AICp benchmark results v1";
+    private static final String[] DIFFICULTIES = {"Easy", "Medium", "Hard"};
+    // Changes smaller than these are noise whatever the threshold
+    private static final long LATENCY_SLACK_NANOS = 25_000;
+    // p99 of a fast set rests on a few puzzles, whose time moves with how each JVM happens to compile
+    private static final long P99_SLACK_NANOS = 100_000;
+    private static final long ALLOCATION_SLACK_BYTES = 4096;
+
+    /**
+     * Measurements for one solver at one difficulty.
+     */
+    static final class Result {
+        final String solver;
+        final int difficulty;
+        final int puzzles;
+        final int solved;
+        final long medianNanos;
+        final long p99Nanos;
+        final long maxNanos;
+        final long allocatedBytes; // mean per solve
+
+        Result(String solver, int difficulty, int puzzles, int solved, long medianNanos, long p99Nanos,
+               long maxNanos, long allocatedBytes) {
+            this.solver = solver;
+            this.difficulty = difficulty;
+            this.puzzles = puzzles;
+            this.solved = solved;
+            this.medianNanos = medianNanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        double successRate() {
+            return puzzles == 0 ? 0 : (double) solved / puzzles;
+        }
+
+        String key() {
+            return solver + "\t" + difficulty;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int puzzles = Integer.parseInt(options.getOrDefault("puzzles", "1000"));
+        int box = Integer.parseInt(options.getOrDefault("box", "3"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "50"));
+        int rounds = Integer.parseInt(options.getOrDefault("rounds", "3"));
+        long timeoutMillis = Long.parseLong(options.getOrDefault("timeout-ms", "10000"));
+        double threshold = Double.parseDouble(options.getOrDefault("threshold", "0.10"));
+        double p99Threshold = Double.parseDouble(options.getOrDefault("p99-threshold", "0.25"));
+        int[] difficulties = Arrays.stream(options.getOrDefault("difficulties", "0,1,2").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        int size = box * box;
+        Path baseline = Paths.get(options.getOrDefault("baseline",
+                "benchmarks/baseline-" + size + "x" + size + ".tsv"));
+        String config = "size=" + size + " puzzles=" + puzzles + " seed=" + seed + " timeoutMs=" + timeoutMillis;
+        boolean record = options.containsKey("record");
+        if (!record && !Files.isRegularFile(baseline)) {
+            System.err.println("No baseline at " + baseline + "; run with --record to create one");
+            System.exit(2);
+        }
+        Map<String, Result> expected = record ? null : read(baseline, config, System.out);
+        String[] solvers = options.containsKey("solvers") ? options.get("solvers").split(",")
+                : record ? SolverRegistry.names()
+                : expected.values().stream().map(r -> r.solver).distinct().toArray(String[]::new);
+
+        PrintStream out = System.out;
+        // The genetic algorithm reports progress on stdout
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        List<Result> results = new ArrayList<>();
+        ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "benchmark");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            SudokuLogicBackTracking generator = new SudokuLogicBackTracking(box);
+            for (int difficulty : difficulties) {
+                int[][][] set = new int[puzzles][][];
+                for (int i = 0; i < puzzles; i++) {
+                    set[i] = generator.generatePuzzle(difficulty, new SolverRandom(puzzleSeed(seed, difficulty, i)));
+                }
+                for (String solver : solvers) {
+                    SolverRegistry.get(solver); // fail fast on unknown names
+                    AdaptiveSolverSelector auto = new AdaptiveSolverSelector(new SolverRandom(seed));
+                    for (int i = 0; i < Math.min(warmup, puzzles); i++) {
+                        measure(worker, solver, auto, set[i], seed + i, timeoutMillis);
+                    }
+                    Result result = run(worker, solver, difficulty, set, seed, timeoutMillis);
+                    for (int round = 1; round < rounds; round++) {
+                        result = best(result, run(worker, solver, difficulty, set, seed, timeoutMillis));
+                    }
+                    results.add(result);
+                    out.println(format(result));
+                }
+            }
+        } finally {
+            worker.shutdownNow();
+            System.setOut(out);
+        }
+
+        if (record) {
+            write(baseline, config, results);
+            out.println("Baseline written to " + baseline);
+            return;
+        }
+        int regressions = compare(expected, results, threshold, p99Threshold, out);
+        String limits = Math.round(threshold * 100) + "% (p99 " + Math.round(p99Threshold * 100) + "%)";
+        if (regressions > 0) {
+            out.println(regressions + " regression(s) beyond " + limits);
+            System.exit(1);
+        }
+        out.println("No regressions beyond " + limits);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            String name = args[i].substring(2);
+            if (name.equals("record")) options.put(name, "true");
+            else if (i + 1 < args.length) options.put(name, args[++i]);
+            else throw new IllegalArgumentException("Missing value for --" + name);
+        }
+        return options;
+    }
+
+    private static long puzzleSeed(long seed, int difficulty, int index) {
+        return seed * 1_000_003L + difficulty * 1_000_000_007L + index;
+    }
+
+    private static Result run(ExecutorService worker, String solver, int difficulty, int[][][] set, long seed,
+                              long timeoutMillis) throws InterruptedException {
+        long[] latencies = new long[set.length];
+        long allocated = 0;
+        int solved = 0;
+        AdaptiveSolverSelector auto = new AdaptiveSolverSelector(new SolverRandom(seed));
+        for (int i = 0; i < set.length; i++) {
+            long[] sample = measure(worker, solver, auto, set[i], seed + i, timeoutMillis);
+            latencies[i] = sample[0];
+            allocated += sample[1];
+            if (sample[2] != 0) solved++;
+        }
+        Arrays.sort(latencies);
+        int n = latencies.length;
+        return new Result(solver, difficulty, n, solved, n == 0 ? 0 : latencies[(n - 1) / 2],
+                n == 0 ? 0 : latencies[(int) Math.ceil(n * 0.99) - 1], n == 0 ? 0 : latencies[n - 1],
+                n == 0 ? 0 : allocated / n);
+    }
+
+    private static Result best(Result a, Result b) {
+        return new Result(a.solver, a.difficulty, a.puzzles, Math.min(a.solved, b.solved),
+                Math.min(a.medianNanos, b.medianNanos), Math.min(a.p99Nanos, b.p99Nanos),
+                Math.min(a.maxNanos, b.maxNanos), Math.min(a.allocatedBytes, b.allocatedBytes));
+    }
+
+    /**
+     * One timed solve on the worker thread: {nanos, bytes allocated, 1 if
+     * solved correctly}. A timeout counts as the timeout and a failure.
+     */
+    private static long[] measure(ExecutorService worker, String solver, AdaptiveSolverSelector auto, int[][] puzzle,
+                                  long seed, long timeoutMillis) throws InterruptedException {
+        int[][] board = new int[puzzle.length][];
+        for (int i = 0; i < puzzle.length; i++) board[i] = puzzle[i].clone();
+        CountDownLatch finished = new CountDownLatch(1);
+        Future<long[]> task = worker.submit(() -> {
+            try {
+                com.sun.management.ThreadMXBean threads =
+                        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+                long bytes = threads.getCurrentThreadAllocatedBytes();
+                long start = System.nanoTime();
+                boolean solved = solve(solver, auto, board, seed);
+                long nanos = System.nanoTime() - start;
+                bytes = threads.getCurrentThreadAllocatedBytes() - bytes;
+                boolean correct = solved && BulkValidator.isSolutionOf(Board.of(puzzle), Board.of(board));
+                return new long[]{nanos, bytes, correct ? 1 : 0};
+            } finally {
+                finished.countDown();
+            }
+        });
+        try {
+            return task.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            task.cancel(true);
+            finished.await(); // annealing and GA ignore interrupts; let them finish before the next solve
+            return new long[]{TimeUnit.MILLISECONDS.toNanos(timeoutMillis), 0, 0};
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(solver + " failed", e.getCause());
+        }
+    }
+
+    private static boolean solve(String solver, AdaptiveSolverSelector auto, int[][] board, long seed) {
+        switch (solver) {
+            case "Auto":
+                return auto.solve(board);
+            case "Simulated Anneling":
+                return SimulatedAnnealingSudoku.solve(board, new SolverRandom(seed));
+            case "Genetic Algo":
+                return SudokuGA.solve(board, new SolverRandom(seed));
+            default:
+                return SolverRegistry.get(solver).solve(board);
+        }
+    }
+
+    private static String format(Result r) {
+        return String.format("%-24s %-6s %5d/%-5d %6.1f%%  median %9.3f ms  p99 %9.3f ms  max %9.3f ms  %9.1f KB/solve",
+                r.solver, DIFFICULTIES[r.difficulty], r.solved, r.puzzles, r.successRate() * 100,
+                r.medianNanos / 1e6, r.p99Nanos / 1e6, r.maxNanos / 1e6, r.allocatedBytes / 1024.0);
+    }
+
+    static void write(Path file, String config, List<Result> results) throws IOException {
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.println(HEADER);
+            out.println("# " + config + " java=" + System.getProperty("java.version")
+                    + " cpus=" + Runtime.getRuntime().availableProcessors());
+            out.println("solver\tdifficulty\tpuzzles\tsolved\tmedianNs\tp99Ns\tmaxNs\tallocBytes");
+            for (Result r : results) {
+                out.println(r.key() + "\t" + r.puzzles + "\t" + r.solved + "\t" + r.medianNanos + "\t"
+                        + r.p99Nanos + "\t" + r.maxNanos + "\t" + r.allocatedBytes);
+            }
+        }
+    }
+
+    static Map<String, Result> read(Path file, String config, PrintStream log) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(HEADER)) {
+            throw new IOException(file + " is not a benchmark results file");
+        }
+        if (lines.size() > 1 && !lines.get(1).startsWith("# " + config + " ")) {
+            log.println("Warning: baseline was recorded with " + lines.get(1).substring(2));
+        }
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (String line : lines) {
+            if (line.startsWith("#") || line.startsWith("solver\t") || line.isBlank()) continue;
+            String[] f = line.split("\t");
+            Result r = new Result(f[0], Integer.parseInt(f[1]), Integer.parseInt(f[2]), Integer.parseInt(f[3]),
+                    Long.parseLong(f[4]), Long.parseLong(f[5]), Long.parseLong(f[6]), Long.parseLong(f[7]));
+            results.put(r.key(), r);
+        }
+        return results;
+    }
+
+    /**
+     * Prints a verdict per result and returns the number of regressions: a
+     * result the baseline has no row for, a lower success rate, or a higher
+     * median or allocation, each by more than threshold, or a p99 higher by
+     * more than p99Threshold. Max latency is reported but not judged, being
+     * a single sample.
+     */
+    static int compare(Map<String, Result> baseline, List<Result> results, double threshold, double p99Threshold,
+                       PrintStream out) {
+        int regressions = 0;
+        for (Result r : results) {
+            Result base = baseline.get(r.key());
+            if (base == null) {
+                out.printf("%-31s REGRESSION: not in baseline%n", r.solver + " " + DIFFICULTIES[r.difficulty]);
+                regressions++;
+                continue;
+            }
+            List<String> problems = new ArrayList<>();
+            if (r.successRate() < base.successRate() * (1 - threshold)) {
+                problems.add(String.format("success %.1f%% -> %.1f%%", base.successRate() * 100, r.successRate() * 100));
+            }
+            if (worse(r.medianNanos, base.medianNanos, threshold, LATENCY_SLACK_NANOS)) {
+                problems.add(String.format("median %.3f -> %.3f ms", base.medianNanos / 1e6, r.medianNanos / 1e6));
+            }
+            if (worse(r.p99Nanos, base.p99Nanos, p99Threshold, P99_SLACK_NANOS)) {
+                problems.add(String.format("p99 %.3f -> %.3f ms", base.p99Nanos / 1e6, r.p99Nanos / 1e6));
+            }
+            if (worse(r.allocatedBytes, base.allocatedBytes, threshold, ALLOCATION_SLACK_BYTES)) {
+                problems.add(String.format("allocation %.1f -> %.1f KB", base.allocatedBytes / 1024.0, r.allocatedBytes / 1024.0));
+            }
+            String name = r.solver + " " + DIFFICULTIES[r.difficulty];
+            if (problems.isEmpty()) {
+                out.printf("%-31s ok (median %+.1f%%, p99 %+.1f%%)%n", name,
+                        change(r.medianNanos, base.medianNanos), change(r.p99Nanos, base.p99Nanos));
+            } else {
+                out.printf("%-31s REGRESSION: %s%n", name, String.join(", ", problems));
+                regressions++;
+            }
+        }
+        return regressions;
+    }
+
+    private static boolean worse(long value, long base, double threshold, long slack) {
+        return value > base * (1 + threshold) + slack;
+    }
+
+    private static double change(long value, long base) {
+        return base == 0 ? 0 : (value - base) * 100.0 / base;
+    }
+}
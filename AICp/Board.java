@@ -0,0 +1,197 @@
+package AICp;
+
+import java.util.Arrays;
+
+/**
+ * Compact board backed by a flat byte array, one byte per cell in row-major
+ * order (0 for empty). A board can be a view into a larger shared array, so
+ * batches of puzzles can live in one allocation and be sliced without
+ * copying. Read-only boards reject writes; copies are always writable.
+ *
+ * Board is the storage and exchange format for batches: the pool, corpus,
+ * async and distributed solvers, the validator and the enumerator's output.
+ * No engine searches on it. Each keeps its own int[][] or flat int grid, and
+ * {@link #solveWith} copies in and out at that boundary.
+ */
+public final class Board {
+    private final byte[] cells;
+    private final int offset;
+    private final int size;
+    private final boolean writable;
+
+    private Board(byte[] cells, int offset, int size, boolean writable) {
+        SudokuLogicBackTracking.boxSize(size); // validates the size
+        if (offset < 0 || offset + size * size > cells.length) {
+            throw new IndexOutOfBoundsException("Board of " + size * size + " cells at " + offset
+                    + " does not fit in " + cells.length + " bytes");
+        }
+        this.cells = cells;
+        this.offset = offset;
+        this.size = size;
+        this.writable = writable;
+    }
+
+    public static Board empty(int size) {
+        return new Board(new byte[size * size], 0, size, true);
+    }
+
+    public static Board of(int[][] grid) {
+        Board board = empty(grid.length);
+        board.copyFrom(grid);
+        return board;
+    }
+
+    /**
+     * Writable view of size*size bytes starting at offset; no copy is made.
+     */
+    public static Board wrap(byte[] data, int offset, int size) {
+        return new Board(data, offset, size, true);
+    }
+
+    /**
+     * Parses one character per cell: '.' or '0' for empty, otherwise '0' + value
+     * (so '1'-'9' for classic boards).
+     */
+    public static Board parse(String text) {
+        int size = (int) Math.round(Math.sqrt(text.length()));
+        if (size * size != text.length()) {
+            throw new IllegalArgumentException("Not a square board: " + text.length() + " cells");
+        }
+        Board board = empty(size);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int value = c == '.' ? 0 : c - '0';
+            if (value < 0 || value > size) {
+                throw new IllegalArgumentException("Bad cell '" + c + "' at " + i);
+            }
+            board.cells[i] = (byte) value;
+        }
+        return board;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int box() {
+        return SudokuLogicBackTracking.boxSize(size);
+    }
+
+    public int get(int row, int col) {
+        return cells[offset + row * size + col];
+    }
+
+    public int get(int cell) {
+        return cells[offset + cell];
+    }
+
+    public void set(int row, int col, int value) {
+        set(row * size + col, value);
+    }
+
+    public void set(int cell, int value) {
+        if (!writable) throw new UnsupportedOperationException("Board is read-only");
+        cells[offset + cell] = (byte) value;
+    }
+
+    public boolean isWritable() {
+        return writable;
+    }
+
+    /**
+     * Read-only view of the same cells. Changes made through a writable view
+     * are still visible.
+     */
+    public Board readOnlyView() {
+        return writable ? new Board(cells, offset, size, false) : this;
+    }
+
+    /**
+     * Immutable snapshot: copies only if this board could still change.
+     */
+    public Board freeze() {
+        if (!writable && offset == 0 && cells.length == size * size) return this;
+        return new Board(Arrays.copyOfRange(cells, offset, offset + size * size), 0, size, false);
+    }
+
+    public Board copy() {
+        return new Board(Arrays.copyOfRange(cells, offset, offset + size * size), 0, size, true);
+    }
+
+    public int clueCount() {
+        int count = 0;
+        for (int i = offset; i < offset + size * size; i++) {
+            if (cells[i] != 0) count++;
+        }
+        return count;
+    }
+
+    public int[][] toArray() {
+        int[][] grid = new int[size][size];
+        copyInto(grid);
+        return grid;
+    }
+
+    public void copyInto(int[][] grid) {
+        for (int r = 0; r < size; r++) {
+            int base = offset + r * size;
+            for (int c = 0; c < size; c++) {
+                grid[r][c] = cells[base + c];
+            }
+        }
+    }
+
+    public void copyFrom(int[][] grid) {
+        if (grid.length != size) {
+            throw new IllegalArgumentException("Expected a " + size + "x" + size + " grid");
+        }
+        if (!writable) throw new UnsupportedOperationException("Board is read-only");
+        for (int r = 0; r < size; r++) {
+            int base = offset + r * size;
+            for (int c = 0; c < size; c++) {
+                cells[base + c] = (byte) grid[r][c];
+            }
+        }
+    }
+
+    /**
+     * Runs an int[][] solver on this board and writes the result back when it
+     * succeeds, so existing engines work on boards unchanged.
+     */
+    public boolean solveWith(SolverRegistry.Solver solver) {
+        int[][] grid = toArray();
+        if (!solver.solve(grid)) return false;
+        copyFrom(grid);
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Board)) return false;
+        Board other = (Board) o;
+        return size == other.size && Arrays.equals(cells, offset, offset + size * size,
+                other.cells, other.offset, other.offset + size * size);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = size;
+        for (int i = offset; i < offset + size * size; i++) {
+            h = 31 * h + cells[i];
+        }
+        return h;
+    }
+
+    /**
+     * One character per cell, the inverse of {@link #parse(String)}.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(size * size);
+        for (int i = offset; i < offset + size * size; i++) {
+            sb.append((char) ('0' + cells[i]));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,146 @@
+package AICp;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.stream.IntStream;
+
+/**
+ * Whole-grid checks with one bitmask per row, column and box, so a board is
+ * verified in a single pass over its cells instead of a 3N-cell scan per
+ * cell. Batch calls spread large arrays of boards over all cores.
+ */
+public final class BulkValidator {
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    private BulkValidator() {
+    }
+
+    /**
+     * True if every cell holds a digit and no row, column or box repeats one.
+     */
+    public static boolean isSolved(Board board) {
+        int size = board.size();
+        int box = board.box();
+        long[] rows = new long[size], cols = new long[size], boxes = new long[size];
+        for (int cell = 0, row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++, cell++) {
+                int value = board.get(cell);
+                if (value < 1 || value > size) return false;
+                long bit = 1L << (value - 1);
+                int b = row / box * box + col / box;
+                if (((rows[row] | cols[col] | boxes[b]) & bit) != 0) return false;
+                rows[row] |= bit;
+                cols[col] |= bit;
+                boxes[b] |= bit;
+            }
+        }
+        return true;
+    }
+
+    public static boolean isSolved(int[][] board) {
+        return isSolved(Board.of(board));
+    }
+
+    /**
+     * True if solution is solved and agrees with every given of puzzle.
+     */
+    public static boolean isSolutionOf(Board puzzle, Board solution) {
+        if (puzzle.size() != solution.size()) return false;
+        for (int cell = 0; cell < puzzle.size() * puzzle.size(); cell++) {
+            if (puzzle.get(cell) != 0 && puzzle.get(cell) != solution.get(cell)) return false;
+        }
+        return isSolved(solution);
+    }
+
+    /**
+     * Marks every filled cell that shares a row, column or box with another
+     * cell holding the same digit. Empty cells are never marked.
+     */
+    public static boolean[][] conflicts(int[][] board) {
+        int size = board.length;
+        int box = SudokuLogicBackTracking.boxSize(size);
+        long[] rows = new long[size], cols = new long[size], boxes = new long[size];
+        // Digits seen at least twice in each unit
+        long[] rowDup = new long[size], colDup = new long[size], boxDup = new long[size];
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int value = board[row][col];
+                if (value == 0) continue;
+                long bit = 1L << (value - 1);
+                int b = row / box * box + col / box;
+                rowDup[row] |= rows[row] & bit;
+                colDup[col] |= cols[col] & bit;
+                boxDup[b] |= boxes[b] & bit;
+                rows[row] |= bit;
+                cols[col] |= bit;
+                boxes[b] |= bit;
+            }
+        }
+        boolean[][] marked = new boolean[size][size];
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int value = board[row][col];
+                if (value == 0) continue;
+                long bit = 1L << (value - 1);
+                marked[row][col] = ((rowDup[row] | colDup[col] | boxDup[row / box * box + col / box]) & bit) != 0;
+            }
+        }
+        return marked;
+    }
+
+    /**
+     * isSolved for each board, in order.
+     */
+    public static boolean[] areSolved(Board[] boards) {
+        boolean[] solved = new boolean[boards.length];
+        IntStream indices = IntStream.range(0, boards.length);
+        if (boards.length >= PARALLEL_THRESHOLD) indices = indices.parallel();
+        indices.forEach(i -> solved[i] = isSolved(boards[i]));
+        return solved;
+    }
+
+    /**
+     * isSolutionOf for each pair, in order.
+     */
+    public static boolean[] areSolutionsOf(Board[] puzzles, Board[] solutions) {
+        if (puzzles.length != solutions.length) throw new IllegalArgumentException("Need one solution per puzzle");
+        boolean[] solved = new boolean[puzzles.length];
+        IntStream indices = IntStream.range(0, puzzles.length);
+        if (puzzles.length >= PARALLEL_THRESHOLD) indices = indices.parallel();
+        indices.forEach(i -> solved[i] = isSolutionOf(puzzles[i], solutions[i]));
+        return solved;
+    }
+
+    /**
+     * Usage: java AICp.BulkValidator corpus.sdkc
+     * Checks every stored solution against its puzzle and prints the indices
+     * of the bad ones.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: BulkValidator <corpus.sdkc>");
+            System.exit(2);
+        }
+        try (PuzzleCorpus corpus = PuzzleCorpus.open(Paths.get(args[0]))) {
+            if (!corpus.hasSolutions()) {
+                System.err.println("Corpus has no solutions to check");
+                System.exit(2);
+            }
+            final int chunk = 65536;
+            long bad = 0;
+            long start = System.nanoTime();
+            for (long from = 0; from < corpus.count(); from += chunk) {
+                long to = Math.min(corpus.count(), from + chunk);
+                boolean[] ok = areSolutionsOf(corpus.slice(from, to), corpus.solutionSlice(from, to));
+                for (int i = 0; i < ok.length; i++) {
+                    if (!ok[i]) {
+                        System.out.println(from + i);
+                        bad++;
+                    }
+                }
+            }
+            System.err.printf("%d of %d solutions invalid (%d ms)%n", bad, corpus.count(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
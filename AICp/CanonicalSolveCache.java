@@ -0,0 +1,76 @@
+package AICp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache from canonical puzzle to canonical solution. Puzzles that
+ * are relabelings, transpositions or band/stack permutations of one already
+ * solved are answered without running a solver. Entries are kept per solver
+ * name, so a solve is only ever answered with a result the same engine
+ * produced. Row swaps within a band are not recognised (see
+ * {@link SudokuSymmetry}), so such variants are cache misses.
+ */
+public class CanonicalSolveCache {
+    private static final int SIZE = 9;
+
+    private final Map<String, int[][]> entries;
+    private long hits;
+    private long misses;
+
+    public CanonicalSolveCache(int capacity) {
+        entries = new LinkedHashMap<String, int[][]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, int[][]> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Solves the board in place with solver, using the cache when the solver
+     * of that name has solved an equivalent puzzle before.
+     */
+    public boolean solve(int[][] board, String solverName, SolverRegistry.Solver solver) {
+        if (board.length != SIZE) {
+            return solver.solve(board);
+        }
+        SudokuSymmetry.Transform transform = SudokuSymmetry.canonicalize(board);
+        String key = solverName + ':' + transform.canonical();
+        int[][] cached;
+        synchronized (this) {
+            cached = entries.get(key);
+            if (cached != null) hits++;
+            else misses++;
+        }
+        if (cached != null) {
+            copyInto(transform.fromCanonical(cached), board);
+            return true;
+        }
+
+        if (!solver.solve(board)) return false;
+        int[][] canonicalSolution = transform.toCanonical(board);
+        synchronized (this) {
+            entries.put(key, canonicalSolution);
+        }
+        return true;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private static void copyInto(int[][] source, int[][] destination) {
+        for (int i = 0; i < SIZE; i++) {
+            System.arraycopy(source[i], 0, destination[i], 0, SIZE);
+        }
+    }
+}
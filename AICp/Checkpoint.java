@@ -0,0 +1,168 @@
+package AICp;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Periodic snapshots of a stochastic solve (simulated annealing or the
+ * genetic algorithm), so a run killed part-way can pick up where it was
+ * instead of starting over. A checkpoint is a small binary file: a header
+ * naming the engine and the puzzle, the step count, the random generator's
+ * seed, and the engine's own state (one byte per cell for boards) with its
+ * length and CRC-32.
+ *
+ * Each snapshot is written to a temporary file and moved over the old one,
+ * so a crash mid-write leaves the previous snapshot intact. On every save
+ * the generator is reseeded from itself and the new seed stored, which
+ * makes a resumed run continue with exactly the random stream the original
+ * run would have used. Saves fall every interval engine steps (cooling
+ * steps or generations), counted across resumes rather than timed, so the
+ * reseeds, and with them the whole run, depend only on the seed and the
+ * interval.
+ */
+public final class Checkpoint {
+    private static final int MAGIC = 0x53554b43; // "SUKC"
+    private static final int VERSION = 3;
+
+    private final Path file;
+    private final int interval;
+    private long steps;
+
+    /**
+     * Saves every interval steps: cooling steps for annealing, generations
+     * for the genetic algorithm.
+     */
+    public Checkpoint(Path file, int interval) {
+        if (interval <= 0) throw new IllegalArgumentException("Interval must be positive: " + interval);
+        this.file = file;
+        this.interval = interval;
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Engine state written after the common header.
+     */
+    interface StateWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * A checkpoint that matched the engine and puzzle: the restored random
+     * generator and a stream positioned at the engine's state.
+     */
+    static final class Resume {
+        final SolverRandom random;
+        final DataInputStream in;
+
+        private Resume(SolverRandom random, DataInputStream in) {
+            this.random = random;
+            this.in = in;
+        }
+    }
+
+    /**
+     * Counts one engine step and says whether a snapshot is due after it.
+     */
+    boolean due() {
+        return ++steps % interval == 0;
+    }
+
+    /**
+     * Writes a snapshot. A failed write is reported and the solve carries
+     * on; the previous snapshot stays in place.
+     */
+    boolean save(String engine, int[][] puzzle, SolverRandom random, StateWriter state) {
+        long seed = random.reseed();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            state.write(new DataOutputStream(bytes));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(engine);
+            writeBoard(out, puzzle);
+            out.writeLong(steps);
+            out.writeLong(seed);
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+            out.writeLong(crc(bytes.toByteArray()));
+        } catch (IOException e) {
+            System.err.println("Checkpoint not written to " + file + ": " + e.getMessage());
+            return false;
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Checkpoint not written to " + file + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * The saved state if the file holds a run of this engine on this puzzle,
+     * otherwise null. A damaged file, including an engine state whose length
+     * or checksum does not match, is treated as absent. Resuming also
+     * restores the step count, so later saves fall where they would have.
+     */
+    Resume resume(String engine, int[][] puzzle) throws IOException {
+        if (!Files.isRegularFile(file)) return null;
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(engine)) return null;
+            int[][] saved = readBoard(in);
+            if (!Arrays.deepEquals(saved, puzzle)) return null;
+            long savedSteps = in.readLong();
+            long seed = in.readLong();
+            int length = in.readInt();
+            if (length < 0 || length > in.available()) return null;
+            byte[] state = new byte[length];
+            in.readFully(state);
+            if (in.readLong() != crc(state)) return null;
+            steps = savedSteps;
+            return new Resume(new SolverRandom(seed), new DataInputStream(new ByteArrayInputStream(state)));
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static long crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    /**
+     * Removes the checkpoint once its run has ended.
+     */
+    void clear() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Checkpoint not removed: " + e.getMessage());
+        }
+    }
+
+    static void writeBoard(DataOutputStream out, int[][] board) throws IOException {
+        out.writeByte(board.length);
+        for (int[] row : board) {
+            for (int value : row) out.writeByte(value);
+        }
+    }
+
+    static int[][] readBoard(DataInputStream in) throws IOException {
+        int size = in.readUnsignedByte();
+        int[][] board = new int[size][size];
+        for (int[] row : board) {
+            for (int col = 0; col < size; col++) row[col] = in.readUnsignedByte();
+        }
+        return board;
+    }
+}
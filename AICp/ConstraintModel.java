@@ -0,0 +1,332 @@
+package AICp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The rules of a Sudoku variant, compiled into index tables once so the
+ * engines never interpret rules while searching. Cells are numbered
+ * row * size + col.
+ *
+ * - units: groups of size cells that hold every digit exactly once (rows,
+ *   columns, boxes or jigsaw regions, and optionally the two diagonals and
+ *   windoku windows); unitsOf[cell] lists the units a cell belongs to.
+ * - peers[cell]: every cell that must hold a different digit.
+ * - extraPeers[cell]: the peers that share no unit with the cell (anti-knight
+ *   moves, cage mates), which unit masks alone do not cover.
+ * - cages: killer cages, whose digits differ and add up to a given sum.
+ *
+ * Each model also owns the Zobrist keys of its cells, which the searches
+ * hash partial boards with.
+ */
+public final class ConstraintModel {
+    private static final ConcurrentMap<Integer, ConstraintModel> CLASSIC = new ConcurrentHashMap<>();
+
+    final int size;
+    final int[][] units;
+    final int[][] unitsOf;
+    final int[][] peers;
+    final int[][] extraPeers;
+    final int[][] cages;
+    final int[] cageSums;
+    final int[] cageOf;
+    // zobrist[cell * size + digit - 1]: XORed into a board's hash while cell holds digit
+    private final long[] zobrist;
+
+    private ConstraintModel(int size, List<int[]> units, List<int[]> extraPairs, List<int[]> cages, List<Integer> sums) {
+        this.size = size;
+        int cells = size * size;
+        this.units = units.toArray(new int[0][]);
+        this.cages = cages.toArray(new int[0][]);
+        cageSums = new int[sums.size()];
+        for (int i = 0; i < cageSums.length; i++) cageSums[i] = sums.get(i);
+
+        List<List<Integer>> membership = new ArrayList<>();
+        List<TreeSet<Integer>> unitMates = new ArrayList<>();
+        List<TreeSet<Integer>> extra = new ArrayList<>();
+        for (int cell = 0; cell < cells; cell++) {
+            membership.add(new ArrayList<>());
+            unitMates.add(new TreeSet<>());
+            extra.add(new TreeSet<>());
+        }
+        for (int u = 0; u < this.units.length; u++) {
+            for (int cell : this.units[u]) {
+                membership.get(cell).add(u);
+                for (int other : this.units[u]) {
+                    if (other != cell) unitMates.get(cell).add(other);
+                }
+            }
+        }
+        cageOf = new int[cells];
+        Arrays.fill(cageOf, -1);
+        for (int k = 0; k < this.cages.length; k++) {
+            for (int cell : this.cages[k]) {
+                if (cageOf[cell] >= 0) throw new IllegalArgumentException("Cell " + cell + " is in two cages");
+                cageOf[cell] = k;
+                for (int other : this.cages[k]) {
+                    if (other != cell) extraPairs.add(new int[]{cell, other});
+                }
+            }
+        }
+        for (int[] pair : extraPairs) {
+            if (!unitMates.get(pair[0]).contains(pair[1])) {
+                extra.get(pair[0]).add(pair[1]);
+                extra.get(pair[1]).add(pair[0]);
+            }
+        }
+
+        unitsOf = new int[cells][];
+        peers = new int[cells][];
+        extraPeers = new int[cells][];
+        for (int cell = 0; cell < cells; cell++) {
+            unitsOf[cell] = membership.get(cell).stream().mapToInt(Integer::intValue).toArray();
+            extraPeers[cell] = extra.get(cell).stream().mapToInt(Integer::intValue).toArray();
+            TreeSet<Integer> all = new TreeSet<>(unitMates.get(cell));
+            all.addAll(extra.get(cell));
+            peers[cell] = all.stream().mapToInt(Integer::intValue).toArray();
+        }
+        SplittableRandom random = new SplittableRandom(size);
+        zobrist = new long[cells * size];
+        for (int i = 0; i < zobrist.length; i++) zobrist[i] = random.nextLong();
+    }
+
+    /**
+     * Rows, columns and boxes only. Shared per size.
+     */
+    public static ConstraintModel classic(int size) {
+        return CLASSIC.computeIfAbsent(size, s -> builder(s).build());
+    }
+
+    public static Builder builder(int size) {
+        return new Builder(size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Candidate digits for an empty cell given the unit masks (bit d-1 set
+     * when d is used in that unit), other constraints included.
+     */
+    long candidates(int[] grid, long[] used, int cell) {
+        long taken = 0;
+        for (int u : unitsOf[cell]) taken |= used[u];
+        for (int p : extraPeers[cell]) {
+            if (grid[p] != 0) taken |= 1L << (grid[p] - 1);
+        }
+        long free = SudokuLogicBackTracking.allDigits(size) & ~taken;
+        if (cageOf[cell] >= 0 && free != 0) {
+            for (long rest = free; rest != 0; rest &= rest - 1) {
+                long bit = rest & -rest;
+                if (!cageAllows(grid, cell, Long.numberOfTrailingZeros(bit) + 1)) free &= ~bit;
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Whether value in cell keeps its cage's sum reachable: not over the
+     * target, and the empty cage cells can still make up the difference.
+     */
+    boolean cageAllows(int[] grid, int cell, int value) {
+        int cage = cageOf[cell];
+        if (cage < 0) return true;
+        int sum = value, empty = 0;
+        for (int other : cages[cage]) {
+            if (other == cell) continue;
+            if (grid[other] == 0) empty++;
+            else sum += grid[other];
+        }
+        int target = cageSums[cage];
+        if (empty == 0) return sum == target;
+        int smallest = empty * (empty + 1) / 2;
+        int largest = empty * (2 * size - empty + 1) / 2;
+        return sum + smallest <= target && sum + largest >= target;
+    }
+
+    /**
+     * True if the filled cells of grid break no rule. Empty cells are ignored
+     * except that a complete cage must hit its sum.
+     */
+    boolean consistent(int[] grid) {
+        for (int cell = 0; cell < grid.length; cell++) {
+            if (grid[cell] == 0) continue;
+            if (grid[cell] < 0 || grid[cell] > size) return false;
+            for (int p : peers[cell]) {
+                if (grid[p] == grid[cell]) return false;
+            }
+            if (!cageAllows(grid, cell, grid[cell])) return false;
+        }
+        return true;
+    }
+
+    /**
+     * The Zobrist key of digit in cell; a board's hash is the XOR of the
+     * keys of its filled cells, so placing or clearing a digit updates it
+     * with one XOR.
+     */
+    long key(int cell, int digit) {
+        return zobrist[cell * size + digit - 1];
+    }
+
+    long hash(int[] grid) {
+        long hash = 0;
+        for (int cell = 0; cell < grid.length; cell++) {
+            if (grid[cell] != 0) hash ^= key(cell, grid[cell]);
+        }
+        return hash;
+    }
+
+    static int[] flatten(int[][] board) {
+        int size = board.length;
+        int[] grid = new int[size * size];
+        for (int r = 0; r < size; r++) {
+            System.arraycopy(board[r], 0, grid, r * size, size);
+        }
+        return grid;
+    }
+
+    static void unflatten(int[] grid, int[][] board) {
+        int size = board.length;
+        for (int r = 0; r < size; r++) {
+            System.arraycopy(grid, r * size, board[r], 0, size);
+        }
+    }
+
+    public static final class Builder {
+        private final int size;
+        private final int box;
+        private int[] regions;
+        private boolean diagonals;
+        private boolean windoku;
+        private boolean antiKnight;
+        private final List<int[]> cages = new ArrayList<>();
+        private final List<Integer> sums = new ArrayList<>();
+
+        private Builder(int size) {
+            this.size = size;
+            this.box = SudokuLogicBackTracking.boxSize(size);
+        }
+
+        /**
+         * X-Sudoku: both main diagonals hold every digit once.
+         */
+        public Builder diagonals() {
+            diagonals = true;
+            return this;
+        }
+
+        /**
+         * Jigsaw: regionOfCell[cell] in [0, size) replaces the boxes. Every
+         * region must have exactly size cells.
+         */
+        public Builder regions(int[] regionOfCell) {
+            if (regionOfCell.length != size * size) throw new IllegalArgumentException("Need one region per cell");
+            int[] counts = new int[size];
+            for (int region : regionOfCell) {
+                if (region < 0 || region >= size || ++counts[region] > size) {
+                    throw new IllegalArgumentException("Regions must split the board into " + size + " regions of " + size + " cells");
+                }
+            }
+            regions = regionOfCell.clone();
+            return this;
+        }
+
+        /**
+         * Windoku: the extra windows one cell in from each box corner (four on 9x9).
+         */
+        public Builder windoku() {
+            windoku = true;
+            return this;
+        }
+
+        /**
+         * Anti-knight: cells a chess knight's move apart hold different digits.
+         */
+        public Builder antiKnight() {
+            antiKnight = true;
+            return this;
+        }
+
+        /**
+         * Killer cage: the cells hold different digits adding up to sum.
+         */
+        public Builder cage(int sum, int... cells) {
+            if (cells.length == 0 || cells.length > size) throw new IllegalArgumentException("Bad cage size " + cells.length);
+            for (int cell : cells) {
+                if (cell < 0 || cell >= size * size) throw new IllegalArgumentException("Bad cell " + cell);
+            }
+            cages.add(cells.clone());
+            sums.add(sum);
+            return this;
+        }
+
+        public ConstraintModel build() {
+            List<int[]> units = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                int[] row = new int[size], col = new int[size];
+                for (int j = 0; j < size; j++) {
+                    row[j] = i * size + j;
+                    col[j] = j * size + i;
+                }
+                units.add(row);
+                units.add(col);
+            }
+            if (regions == null) {
+                for (int b = 0; b < size; b++) {
+                    int[] unit = new int[size];
+                    for (int i = 0; i < size; i++) {
+                        unit[i] = (b / box * box + i / box) * size + b % box * box + i % box;
+                    }
+                    units.add(unit);
+                }
+            } else {
+                int[][] unit = new int[size][size];
+                int[] filled = new int[size];
+                for (int cell = 0; cell < size * size; cell++) {
+                    unit[regions[cell]][filled[regions[cell]]++] = cell;
+                }
+                units.addAll(Arrays.asList(unit));
+            }
+            if (diagonals) {
+                int[] main = new int[size], anti = new int[size];
+                for (int i = 0; i < size; i++) {
+                    main[i] = i * size + i;
+                    anti[i] = i * size + size - 1 - i;
+                }
+                units.add(main);
+                units.add(anti);
+            }
+            if (windoku) {
+                for (int top = 1; top + box < size; top += box + 1) {
+                    for (int left = 1; left + box < size; left += box + 1) {
+                        int[] window = new int[size];
+                        for (int i = 0; i < size; i++) {
+                            window[i] = (top + i / box) * size + left + i % box;
+                        }
+                        units.add(window);
+                    }
+                }
+            }
+            List<int[]> extraPairs = new ArrayList<>();
+            if (antiKnight) {
+                int[][] moves = {{1, 2}, {2, 1}, {2, -1}, {1, -2}};
+                for (int r = 0; r < size; r++) {
+                    for (int c = 0; c < size; c++) {
+                        for (int[] m : moves) {
+                            int r2 = r + m[0], c2 = c + m[1];
+                            if (r2 < size && c2 >= 0 && c2 < size) extraPairs.add(new int[]{r * size + c, r2 * size + c2});
+                        }
+                    }
+                }
+            }
+            return new ConstraintModel(size, units, extraPairs, cages, sums);
+        }
+    }
+}
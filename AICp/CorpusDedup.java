@@ -0,0 +1,150 @@
+package AICp;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams puzzle corpus files (one 81-character puzzle per line, '0' or '.'
+ * for blanks) and writes only the first puzzle of every equivalence class.
+ * Lines are canonicalized in parallel batches and checked against a set of
+ * 64-bit fingerprints of the minlex forms, so memory grows by 8-16 bytes per
+ * distinct puzzle rather than by the puzzles themselves.
+ *
+ * Usage: java AICp.CorpusDedup output.txt input1.txt [input2.txt ...]
+ */
+public class CorpusDedup {
+    private static final int CELLS = 81;
+    private static final int BATCH = 8192;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java AICp.CorpusDedup output.txt input1.txt [input2.txt ...]");
+            System.exit(2);
+        }
+        FingerprintSet seen = new FingerprintSet(1 << 20);
+        long read = 0, written = 0, skipped = 0;
+        long start = System.nanoTime();
+
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(args[0]), StandardCharsets.US_ASCII), 1 << 16)) {
+            List<String> batch = new ArrayList<>(BATCH);
+            for (int i = 1; i < args.length; i++) {
+                try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                        new FileInputStream(args[i]), StandardCharsets.US_ASCII), 1 << 16)) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        line = line.trim();
+                        if (line.length() < CELLS) {
+                            if (!line.isEmpty()) skipped++;
+                            continue;
+                        }
+                        batch.add(line.substring(0, CELLS));
+                        read++;
+                        if (batch.size() == BATCH) {
+                            written += flush(batch, seen, out);
+                        }
+                    }
+                }
+            }
+            written += flush(batch, seen, out);
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("read %d, unique %d, duplicates %d, malformed %d in %.1fs (%.0f puzzles/s)%n",
+                read, written, read - written, skipped, seconds, read / Math.max(seconds, 1e-9));
+    }
+
+    /**
+     * Canonicalizes the batch in parallel, then inserts fingerprints in input
+     * order so the first occurrence of each class is the one kept.
+     */
+    private static long flush(List<String> batch, FingerprintSet seen, Writer out) throws IOException {
+        long[] prints = batch.parallelStream()
+                .mapToLong(line -> fingerprint(MinlexCanonicalizer.canonicalForm(parse(line))))
+                .toArray();
+        long written = 0;
+        for (int i = 0; i < prints.length; i++) {
+            if (seen.add(prints[i])) {
+                out.write(batch.get(i));
+                out.write('\n');
+                written++;
+            }
+        }
+        batch.clear();
+        return written;
+    }
+
+    static int[][] parse(String line) {
+        int[][] board = new int[9][9];
+        for (int i = 0; i < CELLS; i++) {
+            char c = line.charAt(i);
+            board[i / 9][i % 9] = c >= '1' && c <= '9' ? c - '0' : 0;
+        }
+        return board;
+    }
+
+    /**
+     * 64-bit hash of a canonical form. With 50 million distinct puzzles the
+     * chance of any collision is below 1e-4.
+     */
+    static long fingerprint(String canonical) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < canonical.length(); i++) {
+            h = (h ^ canonical.charAt(i)) * 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 31;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Open-addressing set of longs in a single long[] (linear probing, 0 as
+     * the empty marker), kept at most 3/4 full.
+     */
+    static final class FingerprintSet {
+        private long[] table;
+        private int size;
+        private boolean containsZero;
+
+        FingerprintSet(int initialCapacity) {
+            table = new long[Integer.highestOneBit(Math.max(initialCapacity, 16) - 1) << 1];
+        }
+
+        boolean add(long key) {
+            if (key == 0) {
+                boolean added = !containsZero;
+                containsZero = true;
+                return added;
+            }
+            if (size >= table.length - (table.length >> 2)) grow();
+            if (insert(table, key)) {
+                size++;
+                return true;
+            }
+            return false;
+        }
+
+        private static boolean insert(long[] table, long key) {
+            int mask = table.length - 1;
+            int i = (int) (key ^ (key >>> 32)) & mask;
+            while (table[i] != 0) {
+                if (table[i] == key) return false;
+                i = (i + 1) & mask;
+            }
+            table[i] = key;
+            return true;
+        }
+
+        private void grow() {
+            long[] bigger = new long[table.length << 1];
+            for (long key : table) {
+                if (key != 0) insert(bigger, key);
+            }
+            table = bigger;
+        }
+    }
+}
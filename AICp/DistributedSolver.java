@@ -0,0 +1,574 @@
+package AICp;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingDeque;
+
+/**
+ * Batch solving of a puzzle corpus across worker processes, on one host or
+ * several. The coordinator splits the corpus into fixed-size chunks and
+ * serves them over TCP; workers connect, solve chunks on one thread per
+ * core and send the solutions back, and the coordinator writes puzzles and
+ * solutions to an output corpus in the input's order.
+ *
+ * Workers pull: each asks for two chunks per thread up front and for one
+ * more after every result, so no thread waits on a round trip. Once the
+ * shared queue is empty, a worker with nothing queued steals the last chunk
+ * another worker has received but not started; the owner is told to drop
+ * it, and if it had already begun, the first result to arrive is kept. A
+ * worker whose connection drops (a crashed or killed process) has its
+ * unfinished chunks put back at the front of the queue for the others.
+ *
+ * Usage:
+ *   java AICp.DistributedSolver coordinator in.sdkc out.sdkc [--port 0] [--bind 127.0.0.1]
+ *            [--chunk 256] [--solver MRV] [--spawn 0]
+ *   java AICp.DistributedSolver worker host port [--threads N]
+ * --spawn starts that many local worker processes, which is the easy way to
+ * run several workers on one machine. The coordinator listens on loopback
+ * only unless --bind names another address; the protocol has no
+ * authentication, so only bind it to trusted networks.
+ */
+public class DistributedSolver {
+    private static final String DEFAULT_SOLVER = "MRV";
+    private static final int DEFAULT_CHUNK = 256;
+    private static final int PREFETCH_PER_THREAD = 2;
+
+    // Worker to coordinator
+    private static final byte HELLO = 1;
+    private static final byte REQUEST = 2;
+    private static final byte STARTED = 3;
+    private static final byte RESULT = 4;
+    // Coordinator to worker
+    private static final byte CONFIG = 10;
+    private static final byte CHUNK = 11;
+    private static final byte REVOKE = 12;
+    private static final byte DONE = 13;
+
+    /**
+     * Serves one corpus to whichever workers connect until every chunk is
+     * solved. Not reusable: one instance per run.
+     */
+    public static final class Coordinator implements Closeable {
+        private final PuzzleCorpus corpus;
+        private final ServerSocket server;
+        private final String solver;
+        private final int chunkSize;
+        private final int chunks;
+        private final int cells;
+
+        // Guarded by this
+        private final Deque<Integer> queue = new ArrayDeque<>();
+        private final List<Connection> workers = new ArrayList<>();
+        private final Map<Integer, Board[]> finished = new HashMap<>();
+        private final boolean[] done;
+        private int remaining;
+        private int requeued;
+        private int stolen;
+        private IOException failure;
+
+        public Coordinator(PuzzleCorpus corpus, InetAddress bind, int port, String solver, int chunkSize) throws IOException {
+            SolverRegistry.get(solver); // fail fast on a bad name
+            if (chunkSize < 1) throw new IllegalArgumentException("Chunk size must be positive");
+            this.corpus = corpus;
+            this.solver = solver;
+            this.chunkSize = chunkSize;
+            chunks = (int) ((corpus.count() + chunkSize - 1) / chunkSize);
+            cells = corpus.boardSize() * corpus.boardSize();
+            done = new boolean[chunks];
+            remaining = chunks;
+            for (int id = 0; id < chunks; id++) queue.add(id);
+            server = new ServerSocket(port, 50, bind);
+        }
+
+        public int port() {
+            return server.getLocalPort();
+        }
+
+        /**
+         * Accepts workers and writes the solved corpus to out, returning the
+         * number of puzzles solved once every chunk is in.
+         */
+        public long run(Path out) throws IOException, InterruptedException {
+            if (chunks == 0) System.err.println("Corpus is empty");
+            Thread acceptor = new Thread(this::accept, "coordinator-accept");
+            acceptor.setDaemon(true);
+            acceptor.start();
+            long solved = 0;
+            try (PuzzleCorpus.Writer writer = new PuzzleCorpus.Writer(out, corpus.boardSize(), PuzzleCorpus.FLAG_SOLUTIONS)) {
+                for (int id = 0; id < chunks; id++) {
+                    Board[] solutions = await(id);
+                    Board[] puzzles = corpus.slice(from(id), to(id));
+                    for (int i = 0; i < puzzles.length; i++) {
+                        writer.add(puzzles[i], solutions[i], null);
+                        if (solutions[i] != null) solved++;
+                    }
+                }
+            }
+            return solved;
+        }
+
+        public synchronized int requeued() {
+            return requeued;
+        }
+
+        public synchronized int stolen() {
+            return stolen;
+        }
+
+        /**
+         * Tells the workers to exit and stops listening.
+         */
+        @Override
+        public void close() throws IOException {
+            server.close();
+            List<Connection> connected;
+            synchronized (this) {
+                connected = new ArrayList<>(workers);
+            }
+            for (Connection c : connected) {
+                c.send(out -> out.writeByte(DONE));
+                c.close();
+            }
+        }
+
+        private long from(int id) {
+            return (long) id * chunkSize;
+        }
+
+        private long to(int id) {
+            return Math.min(corpus.count(), from(id) + chunkSize);
+        }
+
+        private synchronized Board[] await(int id) throws IOException, InterruptedException {
+            while (!finished.containsKey(id)) {
+                if (failure != null) throw failure;
+                wait();
+            }
+            return finished.remove(id);
+        }
+
+        private void accept() {
+            while (!server.isClosed()) {
+                try {
+                    Connection c = new Connection(server.accept());
+                    Thread reader = new Thread(() -> serve(c), "coordinator-" + c.name);
+                    reader.setDaemon(true);
+                    reader.start();
+                } catch (IOException e) {
+                    if (!server.isClosed()) System.err.println("Accept failed: " + e.getMessage());
+                }
+            }
+        }
+
+        private void serve(Connection c) {
+            try {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(c.socket.getInputStream()));
+                if (in.readByte() != HELLO) throw new IOException("Expected hello");
+                int threads = in.readInt();
+                c.send(out -> {
+                    out.writeByte(CONFIG);
+                    out.writeUTF(solver);
+                    out.writeByte(corpus.boardSize());
+                });
+                synchronized (this) {
+                    workers.add(c);
+                }
+                System.err.println("Worker " + c.name + " joined with " + threads + " threads");
+                while (true) {
+                    byte type = in.readByte();
+                    switch (type) {
+                        case REQUEST:
+                            flush(request(c, in.readInt()));
+                            break;
+                        case STARTED:
+                            started(c, in.readInt());
+                            break;
+                        case RESULT:
+                            int id = in.readInt();
+                            int count = in.readInt();
+                            if (count < 0 || count > chunkSize) throw new IOException("Bad result size " + count);
+                            Board[] solutions = new Board[count];
+                            for (int i = 0; i < solutions.length; i++) {
+                                boolean solved = in.readBoolean();
+                                Board board = readBoard(in, corpus.boardSize());
+                                if (solved) solutions[i] = board;
+                            }
+                            completed(c, id, solutions);
+                            break;
+                        default:
+                            throw new IOException("Unknown message " + type);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // A malformed message drops the worker like a broken connection, so its chunks are re-queued
+                flush(lost(c, e));
+            }
+        }
+
+        /**
+         * Writes the messages queued for each connection. Called outside the
+         * monitor, so one slow socket does not hold up the other workers.
+         */
+        private void flush(Collection<Connection> notified) {
+            for (Connection c : notified) c.flush();
+        }
+
+        private synchronized Collection<Connection> request(Connection c, int n) {
+            c.credit += n;
+            return dispatch();
+        }
+
+        private synchronized void started(Connection c, int id) {
+            if (c.unstarted.remove(id)) c.started.add(id); // else revoked, and now run twice
+        }
+
+        private synchronized void completed(Connection c, int id, Board[] solutions) throws IOException {
+            if (id < 0 || id >= chunks || solutions.length != to(id) - from(id)) throw new IOException("Bad result for chunk " + id);
+            c.started.remove(id);
+            c.unstarted.remove(id);
+            if (done[id]) return;
+            done[id] = true;
+            finished.put(id, solutions);
+            remaining--;
+            notifyAll();
+        }
+
+        private synchronized Collection<Connection> lost(Connection c, Exception cause) {
+            c.close();
+            if (!workers.remove(c) || remaining == 0) return Collections.emptySet();
+            List<Integer> unfinished = new ArrayList<>(c.started);
+            unfinished.addAll(c.unstarted);
+            unfinished.removeIf(id -> done[id]);
+            Collections.sort(unfinished);
+            for (int i = unfinished.size() - 1; i >= 0; i--) queue.addFirst(unfinished.get(i));
+            requeued += unfinished.size();
+            String reason = cause instanceof EOFException ? "connection closed"
+                    : cause instanceof IOException ? cause.getMessage() : cause.toString();
+            System.err.println("Worker " + c.name + " lost (" + reason + "), re-queued "
+                    + unfinished.size() + " chunks");
+            if (workers.isEmpty()) System.err.println("No workers left; waiting for one to connect");
+            return dispatch();
+        }
+
+        /**
+         * Gives workers with credit chunks from the queue, and once it is
+         * empty lets each worker with nothing queued steal the newest
+         * unstarted chunk of the worker holding the most. Only queues the
+         * messages; returns the connections to flush once the monitor is
+         * released.
+         */
+        private Collection<Connection> dispatch() {
+            Set<Connection> notified = new LinkedHashSet<>();
+            for (Connection c : workers) {
+                while (c.credit > 0 && !queue.isEmpty()) assign(c, queue.pollFirst(), notified);
+            }
+            if (!queue.isEmpty()) return notified;
+            for (Connection thief : workers) {
+                if (thief.credit == 0 || !thief.unstarted.isEmpty()) continue;
+                Connection victim = null;
+                for (Connection c : workers) {
+                    if (c != thief && (victim == null || c.unstarted.size() > victim.unstarted.size())) victim = c;
+                }
+                if (victim == null || victim.unstarted.isEmpty()) return notified;
+                int id = victim.unstarted.pollLast();
+                victim.post(out -> {
+                    out.writeByte(REVOKE);
+                    out.writeInt(id);
+                });
+                notified.add(victim);
+                stolen++;
+                assign(thief, id, notified);
+            }
+            return notified;
+        }
+
+        private void assign(Connection c, int id, Set<Connection> notified) {
+            c.credit--;
+            c.unstarted.addLast(id);
+            // The chunk is read from the corpus when the message is written, outside the monitor
+            c.post(out -> {
+                Board[] puzzles;
+                try {
+                    puzzles = corpus.slice(from(id), to(id));
+                } catch (IOException e) {
+                    fail(e);
+                    return;
+                }
+                out.writeByte(CHUNK);
+                out.writeInt(id);
+                out.writeInt(puzzles.length);
+                for (Board puzzle : puzzles) writeBoard(out, puzzle, cells);
+            });
+            notified.add(c);
+        }
+
+        private synchronized void fail(IOException e) {
+            failure = e; // run() rethrows it
+            notifyAll();
+        }
+
+        /**
+         * One worker's socket and the chunks it holds.
+         */
+        private static final class Connection {
+            final Socket socket;
+            final String name;
+            final DataOutputStream out;
+            // Written by flush in the order queued
+            final Queue<Message> outbox = new ConcurrentLinkedQueue<>();
+            int credit;
+            final Deque<Integer> unstarted = new ArrayDeque<>();
+            final Set<Integer> started = new HashSet<>();
+
+            Connection(Socket socket) throws IOException {
+                this.socket = socket;
+                socket.setTcpNoDelay(true);
+                name = socket.getInetAddress().getHostAddress() + ":" + socket.getPort();
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            }
+
+            void post(Message message) {
+                outbox.add(message);
+            }
+
+            /**
+             * Writes every queued message. A failed write closes the socket,
+             * and the reader thread then reports the worker lost.
+             */
+            void flush() {
+                synchronized (out) {
+                    try {
+                        for (Message message; (message = outbox.poll()) != null; ) message.write(out);
+                        out.flush();
+                    } catch (IOException e) {
+                        outbox.clear();
+                        close();
+                    }
+                }
+            }
+
+            void send(Message message) {
+                post(message);
+                flush();
+            }
+
+            void close() {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private interface Message {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Connects to a coordinator and solves the chunks it hands out on a
+     * fixed pool of threads until told the run is done.
+     */
+    public static final class Worker implements Closeable {
+        private static final Chunk STOP = new Chunk(-1, null);
+
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final int threads;
+        // Chunks received and not yet started, oldest first
+        private final LinkedBlockingDeque<Chunk> local = new LinkedBlockingDeque<>();
+
+        public Worker(String host, int port, int threads) throws IOException {
+            if (threads < 1) throw new IllegalArgumentException("Need at least one thread");
+            this.threads = threads;
+            socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        /**
+         * Returns true when the coordinator ends the run, false if the
+         * connection is lost first.
+         */
+        public boolean run() throws IOException {
+            send(out, o -> {
+                o.writeByte(HELLO);
+                o.writeInt(threads);
+            });
+            if (in.readByte() != CONFIG) throw new IOException("Expected config");
+            SolverRegistry.Solver solver = SolverRegistry.get(in.readUTF());
+            int size = in.readUnsignedByte();
+
+            Thread[] pool = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                pool[t] = new Thread(() -> solveChunks(solver), "worker-" + t);
+                pool[t].setDaemon(true);
+                pool[t].start();
+            }
+            send(out, o -> {
+                o.writeByte(REQUEST);
+                o.writeInt(threads * PREFETCH_PER_THREAD);
+            });
+            try {
+                while (true) {
+                    byte type = in.readByte();
+                    if (type == DONE) return true;
+                    int id = in.readInt();
+                    if (type == REVOKE) {
+                        local.removeIf(chunk -> chunk.id == id);
+                    } else if (type == CHUNK) {
+                        Board[] puzzles = new Board[in.readInt()];
+                        byte[] data = new byte[puzzles.length * size * size];
+                        in.readFully(data);
+                        for (int i = 0; i < puzzles.length; i++) puzzles[i] = Board.wrap(data, i * size * size, size);
+                        local.addLast(new Chunk(id, puzzles));
+                    } else {
+                        throw new IOException("Unknown message " + type);
+                    }
+                }
+            } catch (EOFException | java.net.SocketException e) {
+                return false;
+            } finally {
+                local.clear();
+                for (int t = 0; t < threads; t++) local.addLast(STOP);
+            }
+        }
+
+        private void solveChunks(SolverRegistry.Solver solver) {
+            try {
+                while (true) {
+                    Chunk chunk = local.takeFirst();
+                    if (chunk == STOP) return;
+                    send(out, o -> {
+                        o.writeByte(STARTED);
+                        o.writeInt(chunk.id);
+                    });
+                    boolean[] solved = new boolean[chunk.puzzles.length];
+                    for (int i = 0; i < solved.length; i++) {
+                        try {
+                            solved[i] = chunk.puzzles[i].solveWith(solver); // solution written into the chunk
+                        } catch (RuntimeException e) {
+                            System.err.println("Chunk " + chunk.id + " puzzle " + i + ": " + e);
+                        }
+                    }
+                    send(out, o -> {
+                        o.writeByte(RESULT);
+                        o.writeInt(chunk.id);
+                        o.writeInt(solved.length);
+                        for (int i = 0; i < solved.length; i++) {
+                            o.writeBoolean(solved[i]);
+                            writeBoard(o, chunk.puzzles[i], chunk.puzzles[i].size() * chunk.puzzles[i].size());
+                        }
+                        o.writeByte(REQUEST);
+                        o.writeInt(1);
+                    });
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                close(); // the reader sees the closed socket and run() returns
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static final class Chunk {
+        final int id;
+        final Board[] puzzles;
+
+        Chunk(int id, Board[] puzzles) {
+            this.id = id;
+            this.puzzles = puzzles;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 3 && args[0].equals("coordinator")) {
+            Map<String, String> options = parse(args, 3);
+            int spawn = Integer.parseInt(options.getOrDefault("spawn", "0"));
+            long start = System.nanoTime();
+            List<Process> spawned = new ArrayList<>();
+            try (PuzzleCorpus corpus = PuzzleCorpus.open(Paths.get(args[1]));
+                 Coordinator coordinator = new Coordinator(corpus,
+                         InetAddress.getByName(options.getOrDefault("bind", "127.0.0.1")),
+                         Integer.parseInt(options.getOrDefault("port", "0")),
+                         options.getOrDefault("solver", DEFAULT_SOLVER),
+                         Integer.parseInt(options.getOrDefault("chunk", String.valueOf(DEFAULT_CHUNK))))) {
+                System.err.println("Coordinator listening on port " + coordinator.port());
+                for (int i = 0; i < spawn; i++) spawned.add(spawnWorker(coordinator.port()));
+                long solved = coordinator.run(Paths.get(args[2]));
+                System.err.printf("Solved %d of %d puzzles in %d ms (%d chunks stolen, %d re-queued)%n", solved,
+                        corpus.count(), (System.nanoTime() - start) / 1_000_000, coordinator.stolen(), coordinator.requeued());
+            }
+            // Closing the coordinator sends DONE, which is what lets the workers exit
+            for (Process p : spawned) p.waitFor();
+        } else if (args.length >= 3 && args[0].equals("worker")) {
+            Map<String, String> options = parse(args, 3);
+            int threads = Integer.parseInt(options.getOrDefault("threads",
+                    String.valueOf(Runtime.getRuntime().availableProcessors())));
+            try (Worker worker = new Worker(args[1], Integer.parseInt(args[2]), threads)) {
+                if (!worker.run()) {
+                    System.err.println("Lost the coordinator");
+                    System.exit(1);
+                }
+            }
+        } else {
+            System.err.println("Usage: DistributedSolver coordinator <in.sdkc> <out.sdkc> [--port 0] [--bind 127.0.0.1]"
+                    + " [--chunk 256] [--solver MRV] [--spawn 0] | worker <host> <port> [--threads N]");
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Starts a worker in a new JVM on this machine's classpath.
+     */
+    private static Process spawnWorker(int port) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                DistributedSolver.class.getName(), "worker", "127.0.0.1", String.valueOf(port))
+                .inheritIO()
+                .start();
+    }
+
+    private static Map<String, String> parse(String[] args, int from) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = from; i < args.length; i++) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            if (i + 1 == args.length) throw new IllegalArgumentException("Missing value for " + args[i]);
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+
+    private static void send(DataOutputStream out, Message message) throws IOException {
+        synchronized (out) {
+            message.write(out);
+            out.flush();
+        }
+    }
+
+    static void writeBoard(DataOutputStream out, Board board, int cells) throws IOException {
+        for (int cell = 0; cell < cells; cell++) out.writeByte(board.get(cell));
+    }
+
+    static Board readBoard(DataInputStream in, int size) throws IOException {
+        byte[] data = new byte[size * size];
+        in.readFully(data);
+        return Board.wrap(data, 0, size);
+    }
+}
@@ -0,0 +1,80 @@
+package AICp;
+
+/**
+ * Serves hints from a cached solution instead of re-solving for every
+ * candidate digit. The board is solved once; later hints are answered from
+ * the cache for as long as the user's entries agree with it.
+ */
+public class HintEngine {
+    public static class Hint {
+        public final int row;
+        public final int col;
+        public final int value;
+        public final SudokuRater.Technique technique; // null when only the solution justifies it
+
+        Hint(int row, int col, int value, SudokuRater.Technique technique) {
+            this.row = row;
+            this.col = col;
+            this.value = value;
+            this.technique = technique;
+        }
+    }
+
+    private int[][] solution;
+
+    /**
+     * Returns a hint for the board, or null if it has no solution. The board
+     * itself is not modified.
+     */
+    public synchronized Hint hint(int[][] board) {
+        if (solution == null || solution.length != board.length || conflicts(board)) {
+            solution = solve(board);
+            if (solution == null) return null;
+        }
+
+        int size = board.length;
+        int[] step = size == 9 ? SudokuRater.nextPlacement(board) : null; // the rater only knows 9x9
+        if (step != null && solution[step[0] / size][step[0] % size] == step[1]) {
+            return new Hint(step[0] / size, step[0] % size, step[1], SudokuRater.Technique.values()[step[2]]);
+        }
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                if (board[row][col] == 0) {
+                    return new Hint(row, col, solution[row][col], null);
+                }
+            }
+        }
+        return null; // board already complete
+    }
+
+    public synchronized void invalidate() {
+        solution = null;
+    }
+
+    /**
+     * True if any filled cell disagrees with the cached solution.
+     */
+    private boolean conflicts(int[][] board) {
+        for (int row = 0; row < board.length; row++) {
+            for (int col = 0; col < board.length; col++) {
+                if (board[row][col] != 0 && board[row][col] != solution[row][col]) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * MRV for boards up to 16x16; it can search for minutes on 25x25 and
+     * larger, where SAT finds the solution in a fraction of a second.
+     */
+    private static int[][] solve(int[][] board) {
+        int[][] copy = new int[board.length][];
+        for (int i = 0; i < board.length; i++) {
+            copy[i] = board[i].clone();
+        }
+        boolean solved = board.length > 16 ? SudokuSolverSAT.solve(copy) : SudokuSolverMRV.solve(copy);
+        return solved ? copy : null;
+    }
+}
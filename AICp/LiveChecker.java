@@ -0,0 +1,167 @@
+package AICp;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks a board as it is edited one cell at a time. Digit counts per row,
+ * column and box are updated on every edit, so conflicts and candidates
+ * cost O(size) per keystroke instead of a rescan of the board. Whether the
+ * board can still be solved is checked on a background thread; starting a
+ * new check cancels the previous one, which stops its search.
+ */
+public class LiveChecker implements AutoCloseable {
+    private final ConstraintModel model;
+    // A partial board with no solution never gains one, so successive checks share dead ends
+    private final NogoodTable nogoods = new NogoodTable(1 << 16);
+    private final int size;
+    private final int[] grid;
+    // counts[unit * (size + 1) + digit] = cells of the unit holding digit
+    private final int[] counts;
+    // Per unit: digits present, and digits present more than once
+    private final long[] used;
+    private final long[] duplicated;
+    private int duplicates;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "live-checker");
+        t.setDaemon(true);
+        return t;
+    });
+    private CompletableFuture<Boolean> pending;
+    private Future<?> pendingTask;
+
+    public LiveChecker(int size) {
+        model = ConstraintModel.classic(size);
+        this.size = size;
+        grid = new int[size * size];
+        counts = new int[model.units.length * (size + 1)];
+        used = new long[model.units.length];
+        duplicated = new long[model.units.length];
+    }
+
+    /**
+     * Replaces the whole board, e.g. after Generate or Solve.
+     */
+    public void load(int[][] board) {
+        Arrays.fill(grid, 0);
+        Arrays.fill(counts, 0);
+        Arrays.fill(used, 0);
+        Arrays.fill(duplicated, 0);
+        duplicates = 0;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                set(row, col, board[row][col]);
+            }
+        }
+    }
+
+    /**
+     * Sets a cell (0 clears it) and returns the cells whose conflict state
+     * may have changed: the cell itself and the peers holding its old or new
+     * digit, as row * size + col.
+     */
+    public int[] set(int row, int col, int value) {
+        if (value < 0 || value > size) throw new IllegalArgumentException("Digit out of range: " + value);
+        int cell = row * size + col;
+        int old = grid[cell];
+        if (old == value) return new int[]{cell};
+        if (old != 0) count(cell, old, -1);
+        grid[cell] = value;
+        if (value != 0) count(cell, value, 1);
+
+        int[] peers = model.peers[cell];
+        int[] changed = new int[peers.length + 1];
+        int n = 0;
+        changed[n++] = cell;
+        for (int peer : peers) {
+            if (grid[peer] != 0 && (grid[peer] == old || grid[peer] == value)) changed[n++] = peer;
+        }
+        return Arrays.copyOf(changed, n);
+    }
+
+    private void count(int cell, int digit, int delta) {
+        long bit = 1L << (digit - 1);
+        for (int u : model.unitsOf[cell]) {
+            int index = u * (size + 1) + digit;
+            int before = counts[index];
+            int after = before + delta;
+            counts[index] = after;
+            if (after > 1) duplicated[u] |= bit;
+            else duplicated[u] &= ~bit;
+            if (after > 0) used[u] |= bit;
+            else used[u] &= ~bit;
+            duplicates += Math.max(after - 1, 0) - Math.max(before - 1, 0);
+        }
+    }
+
+    public int get(int row, int col) {
+        return grid[row * size + col];
+    }
+
+    /**
+     * True if the cell is filled and its digit repeats in its row, column or box.
+     */
+    public boolean isConflict(int row, int col) {
+        int cell = row * size + col;
+        if (grid[cell] == 0) return false;
+        long bit = 1L << (grid[cell] - 1);
+        for (int u : model.unitsOf[cell]) {
+            if ((duplicated[u] & bit) != 0) return true;
+        }
+        return false;
+    }
+
+    public boolean hasConflicts() {
+        return duplicates > 0;
+    }
+
+    /**
+     * Digits not yet used in the cell's row, column or box (bit d-1 for d).
+     */
+    public long candidates(int row, int col) {
+        long taken = 0;
+        for (int u : model.unitsOf[row * size + col]) taken |= used[u];
+        return SudokuLogicBackTracking.allDigits(size) & ~taken;
+    }
+
+    /**
+     * Starts a check of whether the current board has a solution, cancelling
+     * the previous check. Call from one thread (the GUI's event thread).
+     * A board with conflicts completes false at once.
+     */
+    public CompletableFuture<Boolean> checkSolvable() {
+        if (pending != null) {
+            pending.cancel(false);
+            pendingTask.cancel(true); // interrupts a running search
+        }
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        int[][] board = new int[size][size];
+        ConstraintModel.unflatten(grid, board);
+        pending = result;
+        if (hasConflicts()) {
+            pendingTask = CompletableFuture.completedFuture(null);
+            result.complete(false);
+            return result;
+        }
+        pendingTask = worker.submit(() -> {
+            if (result.isDone()) return; // superseded while queued
+            try {
+                result.complete(SudokuSolverMRV.solve(board, model, null, nogoods));
+            } catch (CancellationException e) {
+                result.cancel(false);
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void close() {
+        worker.shutdownNow();
+    }
+}
@@ -0,0 +1,163 @@
+package AICp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minlex canonical form of a 9x9 puzzle over the full symmetry group: all
+ * 2 x 1296 x 1296 = 3,359,232 transpositions and row/column permutations that
+ * preserve bands and stacks, with digits relabeled by first appearance.
+ *
+ * The grid is built one canonical row at a time. Every partial transform
+ * whose row so far is larger than the best row is dropped immediately, so only
+ * the ties for the minimum survive to the next row.
+ */
+public class MinlexCanonicalizer {
+    private static final int SIZE = 9;
+    private static final int CELLS = SIZE * SIZE;
+    private static final int[][] PERMS3 = {
+        {0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0}
+    };
+    // All column orders that keep stacks together: stack order x order inside each stack
+    private static final int[][] COL_PERMS = new int[1296][SIZE];
+
+    static {
+        int n = 0;
+        for (int[] stacks : PERMS3) {
+            for (int[] a : PERMS3) {
+                for (int[] b : PERMS3) {
+                    for (int[] c : PERMS3) {
+                        int[][] inner = {a, b, c};
+                        for (int col = 0; col < SIZE; col++) {
+                            COL_PERMS[n][col] = stacks[col / 3] * 3 + inner[col / 3][col % 3];
+                        }
+                        n++;
+                    }
+                }
+            }
+        }
+    }
+
+    // One surviving partial transform
+    private static final class State {
+        final int transpose;
+        final int[] cols;
+        final int[] rows = new int[SIZE];
+        final int[] relabel = new int[SIZE + 1];
+        int nextLabel = 1;
+        int usedRows;
+
+        State(int transpose, int[] cols) {
+            this.transpose = transpose;
+            this.cols = cols;
+        }
+
+        State extend(int level, int row, int[] newRelabel, int newNext) {
+            State s = new State(transpose, cols);
+            System.arraycopy(rows, 0, s.rows, 0, level);
+            s.rows[level] = row;
+            System.arraycopy(newRelabel, 0, s.relabel, 0, SIZE + 1);
+            s.nextLabel = newNext;
+            s.usedRows = usedRows | (1 << row);
+            return s;
+        }
+    }
+
+    /**
+     * Returns the canonical grid as an 81-character string.
+     */
+    public static String canonicalForm(int[][] board) {
+        return canonicalize(board).canonical();
+    }
+
+    /**
+     * Returns the minlex form together with a transform that maps boards
+     * (for example solutions) into and out of it.
+     */
+    public static SudokuSymmetry.Transform canonicalize(int[][] board) {
+        int[][][] grids = new int[2][SIZE][SIZE];
+        for (int r = 0; r < SIZE; r++) {
+            for (int c = 0; c < SIZE; c++) {
+                grids[0][r][c] = board[r][c];
+                grids[1][c][r] = board[r][c];
+            }
+        }
+
+        List<State> states = new ArrayList<>(2 * COL_PERMS.length);
+        for (int t = 0; t < 2; t++) {
+            for (int[] cols : COL_PERMS) {
+                states.add(new State(t, cols));
+            }
+        }
+
+        int[] result = new int[CELLS];
+        int[] best = new int[SIZE];
+        int[] row = new int[SIZE];
+        int[] relabel = new int[SIZE + 1];
+
+        for (int level = 0; level < SIZE; level++) {
+            List<State> next = new ArrayList<>();
+            boolean haveBest = false;
+            for (State s : states) {
+                int[][] g = grids[s.transpose];
+                for (int r = 0; r < SIZE; r++) {
+                    if (!allowed(s, level, r)) continue;
+                    System.arraycopy(s.relabel, 0, relabel, 0, SIZE + 1);
+                    int label = s.nextLabel;
+                    int cmp = haveBest ? 0 : -1;
+                    int c = 0;
+                    for (; c < SIZE; c++) {
+                        int d = g[r][s.cols[c]];
+                        if (d != 0 && relabel[d] == 0) relabel[d] = label++;
+                        int v = relabel[d];
+                        row[c] = v;
+                        if (cmp == 0) {
+                            if (v > best[c]) break; // already larger: prune
+                            if (v < best[c]) cmp = -1;
+                        }
+                    }
+                    if (c < SIZE) continue;
+                    if (cmp < 0) {
+                        next.clear();
+                        System.arraycopy(row, 0, best, 0, SIZE);
+                        haveBest = true;
+                    }
+                    next.add(s.extend(level, r, relabel, label));
+                }
+            }
+            System.arraycopy(best, 0, result, level * SIZE, SIZE);
+            states = next;
+        }
+
+        State winner = states.get(0);
+        int[] source = new int[CELLS];
+        for (int p = 0; p < CELLS; p++) {
+            int r = winner.rows[p / SIZE];
+            int c = winner.cols[p % SIZE];
+            source[p] = winner.transpose == 0 ? r * SIZE + c : c * SIZE + r;
+        }
+        int[] finalRelabel = winner.relabel.clone();
+        int label = winner.nextLabel;
+        for (int d = 1; d <= SIZE; d++) {
+            if (finalRelabel[d] == 0) finalRelabel[d] = label++;
+        }
+        StringBuilder sb = new StringBuilder(CELLS);
+        for (int v : result) {
+            sb.append((char) ('0' + v));
+        }
+        return new SudokuSymmetry.Transform(source, finalRelabel, sb.toString());
+    }
+
+    /**
+     * Canonical row 'level' may use original row r if r is unused and keeps
+     * bands together: a new band starts at levels 0, 3 and 6, otherwise r
+     * must come from the band already in progress.
+     */
+    private static boolean allowed(State s, int level, int r) {
+        if ((s.usedRows & (1 << r)) != 0) return false;
+        if (level % 3 == 0) {
+            return (s.usedRows >> (r / 3 * 3) & 7) == 0;
+        }
+        return r / 3 == s.rows[level - 1] / 3;
+    }
+}
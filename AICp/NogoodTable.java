@@ -0,0 +1,69 @@
+package AICp;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Zobrist hashes of partial boards known to have no completion, owned by a
+ * caller that passes it to a series of solves, e.g. successive checks of a
+ * board being edited, so each skips the dead ends the others found. Solves
+ * without a table keep no nogoods. Only share a table between solves under
+ * the same {@link ConstraintModel}, since a nogood holds only under the
+ * rules that produced it. Fixed size: buckets of four keys, and a full
+ * bucket overwrites one of its keys, so the table
+ * keeps recent nogoods and never grows. Reads and writes are single atomic
+ * long accesses with no locking; a lost or overwritten entry only costs a
+ * repeated search.
+ *
+ * Keys are 64-bit, so a false match needs a hash collision between two
+ * different boards, which is negligible at the table's size.
+ */
+public final class NogoodTable {
+    private static final int WAYS = 4;
+
+    private final AtomicLongArray keys;
+    private final int mask;
+
+    /**
+     * @param capacity number of keys, a power of two
+     */
+    public NogoodTable(int capacity) {
+        if (Integer.bitCount(capacity) != 1 || capacity < WAYS) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        keys = new AtomicLongArray(capacity);
+        mask = capacity - WAYS;
+    }
+
+    boolean contains(long hash) {
+        long key = key(hash);
+        int bucket = bucket(key);
+        for (int i = 0; i < WAYS; i++) {
+            if (keys.getOpaque(bucket + i) == key) return true;
+        }
+        return false;
+    }
+
+    void add(long hash) {
+        long key = key(hash);
+        int bucket = bucket(key);
+        for (int i = 0; i < WAYS; i++) {
+            long current = keys.getOpaque(bucket + i);
+            if (current == key) return;
+            if (current == 0 && keys.compareAndSet(bucket + i, 0, key)) return;
+        }
+        keys.setOpaque(bucket + (int) (key >>> 62), key); // bucket full: evict by the key's top bits
+    }
+
+    public void clear() {
+        for (int i = 0; i < keys.length(); i++) keys.setOpaque(i, 0);
+    }
+
+    // 0 marks an empty slot
+    private static long key(long hash) {
+        return hash == 0 ? 1 : hash;
+    }
+
+    private int bucket(long key) {
+        return (int) (key ^ key >>> 32) & mask;
+    }
+}
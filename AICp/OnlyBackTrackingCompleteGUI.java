@@ -2,18 +2,24 @@ package AICp;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.*;
-import java.util.*;
-import java.util.Queue;
-import AICp.SudokuSolverCP;
 
 public class OnlyBackTrackingCompleteGUI extends JFrame {
-    private static final int SIZE = 9;
-    private static final int SUBGRID = 3;
-    private JTextField[][] cells = new JTextField[SIZE][SIZE];
-    private int[][] board = new int[SIZE][SIZE];
+    private final int SIZE;
+    private final int SUBGRID;
+    private JTextField[][] cells;
+    private int[][] board;
+    private final SudokuCore core;
 
     public OnlyBackTrackingCompleteGUI() {
+        this(3);
+    }
+
+    public OnlyBackTrackingCompleteGUI(int subgrid) {
+        SUBGRID = subgrid;
+        SIZE = subgrid * subgrid;
+        core = new SudokuCore(subgrid);
+        cells = new JTextField[SIZE][SIZE];
+        board = new int[SIZE][SIZE];
         setTitle("Sudoku Solver & Generator");
         setSize(700, 700);
         setLayout(new BorderLayout());
@@ -81,7 +87,7 @@ public class OnlyBackTrackingCompleteGUI extends JFrame {
 
     public void solveSudoku() {
         readBoard();
-        if (backtrackingSolve(board)) {  // Use the class name
+        if (core.solve("Backtracking", board)) {
             updateBoard();
             JOptionPane.showMessageDialog(this, "Solved!");
         } else {
@@ -91,7 +97,9 @@ public class OnlyBackTrackingCompleteGUI extends JFrame {
     
 
     private void generatePuzzle() {
-        board = generateValidSudoku(getDifficulty());
+        int difficulty = getDifficulty();
+        if (difficulty < 0) return; // dialog closed
+        board = core.generate(difficulty);
         updateBoard();
     }
 
@@ -126,10 +134,11 @@ public class OnlyBackTrackingCompleteGUI extends JFrame {
     private void validateSolution() {
         boolean valid = true;
         readBoard();
+        boolean[][] conflicts = core.conflicts(board);
 
         for (int i = 0; i < SIZE; i++) {
             for (int j = 0; j < SIZE; j++) {
-                if (board[i][j] != 0 && !isValid(board, i, j, board[i][j])) {
+                if (conflicts[i][j]) {
                     cells[i][j].setBackground(Color.RED);
                     valid = false;
                 } else {
@@ -147,123 +156,16 @@ public class OnlyBackTrackingCompleteGUI extends JFrame {
 
     private void provideHint() {
         readBoard();
-        for (int row = 0; row < SIZE; row++) {
-            for (int col = 0; col < SIZE; col++) {
-                if (board[row][col] == 0) { // Find an empty cell
-                    for (int num = 1; num <= SIZE; num++) { // Check numbers 1-9
-                        if (isValid(board, row, col, num)) {
-                            // Temporarily place the number
-                            board[row][col] = num;
-                            if (backtrackingSolve(board)) { // Check if it leads to a solution
-                                cells[row][col].setText(String.valueOf(num));
-                                cells[row][col].setBackground(Color.YELLOW);
-                                return; // Return the hint immediately
-                            }
-                            // Remove the number and try the next
-                            board[row][col] = 0;
-                        }
-                    }
-                }
-            }
-        }
-        JOptionPane.showMessageDialog(this, "No hints available.");
-    }
-    
-    private boolean isValid(int[][] board, int row, int col, int num) {
-        for (int i = 0; i < SIZE; i++) {
-            if (board[row][i] == num && i != col || // Check row
-                board[i][col] == num && i != row || // Check column
-                board[row / SUBGRID * SUBGRID + i / SUBGRID][col / SUBGRID * SUBGRID + i % SUBGRID] == num &&
-                (row / SUBGRID * SUBGRID + i / SUBGRID != row ||
-                        col / SUBGRID * SUBGRID + i % SUBGRID != col)) { // Check subgrid
-                return false;
-            }
-        }
-        return true;
-    }
-
-    private boolean backtrackingSolve(int[][] board) {
-        for (int row = 0; row < SIZE; row++) {
-            for (int col = 0; col < SIZE; col++) {
-                if (board[row][col] == 0) {
-                    for (int num = 1; num <= SIZE; num++) {
-                        if (isValid(board, row, col, num)) {
-                            board[row][col] = num;
-                            if (backtrackingSolve(board)) return true;
-                            board[row][col] = 0;
-                        }
-                    }
-                    return false;
-                }
-            }
-        }
-        return true;
-    }
-
-    // Updated to include randomization and unique puzzle generation
-    private int[][] generateValidSudoku(int difficulty) {
-        int[][] fullBoard = new int[SIZE][SIZE];
-        fillDiagonal(fullBoard); // Fill the diagonal 3x3 subgrids
-        backtrackingSolve(fullBoard); // Generate a solved board
-
-        int[][] puzzle = copyBoard(fullBoard);
-        int removeCount = difficulty == 0 ? 36 : difficulty == 1 ? 45 : 54;
-
-        Random rand = new Random();
-        while (removeCount > 0) {
-            int row = rand.nextInt(SIZE);
-            int col = rand.nextInt(SIZE);
-            if (puzzle[row][col] != 0) {
-                puzzle[row][col] = 0;
-                removeCount--;
-            }
+        HintEngine.Hint hint = core.hint(board);
+        if (hint == null) {
+            JOptionPane.showMessageDialog(this, "No hints available.");
+            return;
         }
-        return puzzle;
+        cells[hint.row][hint.col].setText(String.valueOf(hint.value));
+        cells[hint.row][hint.col].setBackground(Color.YELLOW);
     }
 
-    private void fillDiagonal(int[][] board) {
-        for (int i = 0; i < SIZE; i += SUBGRID) {
-            fillSubGrid(board, i, i);
-        }
-    }
-
-    private void fillSubGrid(int[][] board, int row, int col) {
-        Random rand = new Random();
-        int[] numbers = new int[SIZE];
-        for (int i = 0; i < SIZE; i++) {
-            numbers[i] = i + 1;
-        }
-        shuffleArray(numbers);
-        for (int r = 0; r < SUBGRID; r++) {
-            for (int c = 0; c < SUBGRID; c++) {
-                board[row + r][col + c] = numbers[r * SUBGRID + c];
-            }
-        }
-    }
-
-    private void shuffleArray(int[] array) {
-        Random rand = new Random();
-        for (int i = array.length - 1; i > 0; i--) {
-            int j = rand.nextInt(i + 1);
-            int temp = array[i];
-            array[i] = array[j];
-            array[j] = temp;
-        }
-    }
-
-    private int[][] copyBoard(int[][] original) {
-        int[][] copy = new int[SIZE][SIZE];
-        for (int i = 0; i < SIZE; i++) {
-            System.arraycopy(original[i], 0, copy[i], 0, SIZE);
-        }
-        return copy;
-    }
-
-
-
-    
-
     public static void main(String[] args) {
-        new OnlyBackTrackingCompleteGUI();
+        new OnlyBackTrackingCompleteGUI(args.length > 0 ? Integer.parseInt(args[0]) : 3);
     }
 }
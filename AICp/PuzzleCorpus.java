@@ -0,0 +1,340 @@
+package AICp;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary puzzle corpus with O(1) random access.
+ *
+ * Layout: a 32-byte header followed by fixed-width records, so record i
+ * starts at HEADER_SIZE + i * recordSize and the record table is its own
+ * index. Each record holds the clue grid bit-packed at the smallest width
+ * that fits the digits (4 bits per cell for 9x9, 41 bytes per grid), then
+ * optionally the solution in the same packing, then optionally the rating as
+ * a technique byte and a 16-bit score.
+ *
+ * Header: magic "SDKC", version (short), board size (byte), flags (byte),
+ * record count (long), record size (int), 12 reserved bytes. All big-endian.
+ */
+public class PuzzleCorpus implements Closeable {
+    private static final int MAGIC = 0x53444B43; // "SDKC"
+    private static final short VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    public static final int FLAG_SOLUTIONS = 1;
+    public static final int FLAG_RATINGS = 2;
+
+    private final FileChannel channel;
+    private final int size;
+    private final int flags;
+    private final long count;
+    private final int recordSize;
+    private final int gridBytes;
+
+    private PuzzleCorpus(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC) throw new IOException("Not a puzzle corpus");
+        short version = header.getShort();
+        if (version != VERSION) throw new IOException("Unsupported corpus version " + version);
+        size = header.get();
+        flags = header.get();
+        count = header.getLong();
+        recordSize = header.getInt();
+        gridBytes = gridBytes(size);
+        if (recordSize != recordSize(size, flags)) throw new IOException("Corrupt header: record size " + recordSize);
+    }
+
+    public static PuzzleCorpus open(Path path) throws IOException {
+        return new PuzzleCorpus(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public int boardSize() {
+        return size;
+    }
+
+    public boolean hasSolutions() {
+        return (flags & FLAG_SOLUTIONS) != 0;
+    }
+
+    public boolean hasRatings() {
+        return (flags & FLAG_RATINGS) != 0;
+    }
+
+    public Board puzzle(long index) throws IOException {
+        return unpack(readRecord(index), 0, size);
+    }
+
+    public Board solution(long index) throws IOException {
+        if (!hasSolutions()) throw new IllegalStateException("Corpus has no solutions");
+        return unpack(readRecord(index), gridBytes, size);
+    }
+
+    public SudokuRater.Rating rating(long index) throws IOException {
+        if (!hasRatings()) throw new IllegalStateException("Corpus has no ratings");
+        ByteBuffer record = readRecord(index);
+        int at = gridBytes * (hasSolutions() ? 2 : 1);
+        int technique = record.get(at);
+        int score = record.getShort(at + 1) & 0xFFFF;
+        return technique < 0 ? new SudokuRater.Rating(null, score, false)
+                : new SudokuRater.Rating(SudokuRater.Technique.values()[technique], score, true);
+    }
+
+    /**
+     * Reads puzzles [from, to) into one shared byte array with a single
+     * positional read, returning zero-copy Board views into it.
+     */
+    public Board[] slice(long from, long to) throws IOException {
+        return slice(from, to, 0);
+    }
+
+    /**
+     * Solutions [from, to), laid out like {@link #slice(long, long)}.
+     */
+    public Board[] solutionSlice(long from, long to) throws IOException {
+        if (!hasSolutions()) throw new IllegalStateException("Corpus has no solutions");
+        return slice(from, to, gridBytes);
+    }
+
+    private Board[] slice(long from, long to, int at) throws IOException {
+        if (from < 0 || to > count || from > to) throw new IndexOutOfBoundsException(from + ".." + to);
+        int n = (int) (to - from);
+        ByteBuffer records = ByteBuffer.allocate(n * recordSize);
+        readFully(records, HEADER_SIZE + from * recordSize);
+        byte[] cells = new byte[n * size * size];
+        Board[] boards = new Board[n];
+        for (int i = 0; i < n; i++) {
+            boards[i] = Board.wrap(cells, i * size * size, size);
+            unpackInto(records, i * recordSize + at, boards[i]);
+        }
+        return boards;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private ByteBuffer readRecord(long index) throws IOException {
+        if (index < 0 || index >= count) throw new IndexOutOfBoundsException("Puzzle " + index + " of " + count);
+        ByteBuffer record = ByteBuffer.allocate(recordSize);
+        readFully(record, HEADER_SIZE + index * recordSize);
+        return record;
+    }
+
+    // Positional reads do not move the channel's position, so readers can share one corpus
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) throw new EOFException("Truncated corpus");
+        }
+    }
+
+    static int bitsPerCell(int size) {
+        return 32 - Integer.numberOfLeadingZeros(size);
+    }
+
+    static int gridBytes(int size) {
+        return (size * size * bitsPerCell(size) + 7) / 8;
+    }
+
+    static int recordSize(int size, int flags) {
+        return gridBytes(size) * ((flags & FLAG_SOLUTIONS) != 0 ? 2 : 1) + ((flags & FLAG_RATINGS) != 0 ? 3 : 0);
+    }
+
+    static void pack(Board board, byte[] out, int at) {
+        int bits = bitsPerCell(board.size());
+        long bitPos = (long) at * 8;
+        for (int cell = 0; cell < board.size() * board.size(); cell++) {
+            int value = board.get(cell);
+            for (int b = bits - 1; b >= 0; b--, bitPos++) {
+                if ((value >> b & 1) != 0) out[(int) (bitPos >> 3)] |= (byte) (0x80 >>> (bitPos & 7));
+            }
+        }
+    }
+
+    private static Board unpack(ByteBuffer record, int at, int size) {
+        Board board = Board.empty(size);
+        unpackInto(record, at, board);
+        return board;
+    }
+
+    private static void unpackInto(ByteBuffer record, int at, Board board) {
+        int bits = bitsPerCell(board.size());
+        long bitPos = (long) at * 8;
+        for (int cell = 0; cell < board.size() * board.size(); cell++) {
+            int value = 0;
+            for (int b = 0; b < bits; b++, bitPos++) {
+                value = value << 1 | (record.get((int) (bitPos >> 3)) >> (7 - (bitPos & 7)) & 1);
+            }
+            board.set(cell, value);
+        }
+    }
+
+    /**
+     * Appends records and fills in the record count on close.
+     */
+    public static class Writer implements Closeable {
+        private final FileChannel channel;
+        private final int size;
+        private final int flags;
+        private final int recordSize;
+        private final int gridBytes;
+        private final ByteBuffer buffer;
+        private long count;
+
+        public Writer(Path path, int size, int flags) throws IOException {
+            SudokuLogicBackTracking.boxSize(size);
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.size = size;
+            this.flags = flags;
+            this.recordSize = PuzzleCorpus.recordSize(size, flags);
+            this.gridBytes = PuzzleCorpus.gridBytes(size);
+            this.buffer = ByteBuffer.allocate(Math.max(recordSize, (1 << 16) / recordSize * recordSize));
+            writeHeader();
+            channel.position(HEADER_SIZE);
+        }
+
+        public void add(Board puzzle, Board solution, SudokuRater.Rating rating) throws IOException {
+            if (puzzle.size() != size) throw new IllegalArgumentException("Expected " + size + "x" + size);
+            byte[] record = new byte[recordSize];
+            pack(puzzle, record, 0);
+            int at = gridBytes;
+            if ((flags & FLAG_SOLUTIONS) != 0) {
+                if (solution != null) pack(solution, record, at);
+                at += gridBytes;
+            }
+            if ((flags & FLAG_RATINGS) != 0) {
+                record[at] = (byte) (rating == null || !rating.valid ? -1 : rating.hardest.ordinal());
+                int score = rating == null ? 0 : Math.min(rating.score, 0xFFFF);
+                record[at + 1] = (byte) (score >> 8);
+                record[at + 2] = (byte) score;
+            }
+            if (buffer.remaining() < recordSize) flush();
+            buffer.put(record);
+            count++;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        private void writeHeader() throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putShort(VERSION).put((byte) size).put((byte) flags)
+                    .putLong(count).putInt(recordSize);
+            header.position(HEADER_SIZE).flip();
+            channel.write(header, 0);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            writeHeader();
+            channel.close();
+        }
+    }
+
+    /**
+     * Usage:
+     *   java AICp.PuzzleCorpus to-binary puzzles.txt corpus.sdkc [--solve] [--rate]
+     *   java AICp.PuzzleCorpus to-text corpus.sdkc puzzles.txt
+     *   java AICp.PuzzleCorpus get corpus.sdkc index
+     * Text files hold one puzzle per line, one character per cell, optionally
+     * followed by whitespace and the solution.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: PuzzleCorpus to-binary <in.txt> <out.sdkc> [--solve] [--rate]"
+                    + " | to-text <in.sdkc> <out.txt> | get <in.sdkc> <index>");
+            System.exit(2);
+        }
+        switch (args[0]) {
+            case "to-binary":
+                toBinary(Paths.get(args[1]), Paths.get(args[2]), hasOption(args, "--solve"), hasOption(args, "--rate"));
+                break;
+            case "to-text":
+                toText(Paths.get(args[1]), Paths.get(args[2]));
+                break;
+            case "get":
+                try (PuzzleCorpus corpus = open(Paths.get(args[1]))) {
+                    long index = Long.parseLong(args[2]);
+                    System.out.println(corpus.puzzle(index)
+                            + (corpus.hasSolutions() ? " " + corpus.solution(index) : "")
+                            + (corpus.hasRatings() ? " " + corpus.rating(index) : ""));
+                }
+                break;
+            default:
+                System.err.println("Unknown command " + args[0]);
+                System.exit(2);
+        }
+    }
+
+    private static boolean hasOption(String[] args, String option) {
+        for (String arg : args) {
+            if (arg.equals(option)) return true;
+        }
+        return false;
+    }
+
+    public static void toBinary(Path in, Path out, boolean solve, boolean rate) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(in.toFile()), StandardCharsets.US_ASCII), 1 << 16)) {
+            Writer writer = null;
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.trim().split("\\s+");
+                    if (parts[0].isEmpty()) continue;
+                    Board puzzle = Board.parse(parts[0]);
+                    Board solution = parts.length > 1 ? Board.parse(parts[1]) : null;
+                    if (writer == null) {
+                        int flags = (solve || solution != null ? FLAG_SOLUTIONS : 0) | (rate ? FLAG_RATINGS : 0);
+                        writer = new Writer(out, puzzle.size(), flags);
+                    }
+                    if (solution == null && solve) {
+                        Board solved = puzzle.copy();
+                        if (solved.solveWith(SudokuSolverMRV::solve)) solution = solved;
+                    }
+                    SudokuRater.Rating rating = rate && puzzle.size() == 9 ? SudokuRater.rate(puzzle.toArray()) : null;
+                    writer.add(puzzle, solution, rating);
+                }
+            } finally {
+                if (writer != null) writer.close();
+            }
+        }
+    }
+
+    public static void toText(Path in, Path out) throws IOException {
+        try (PuzzleCorpus corpus = open(in);
+             java.io.Writer writer = new BufferedWriter(new OutputStreamWriter(
+                     new FileOutputStream(out.toFile()), StandardCharsets.US_ASCII), 1 << 16)) {
+            final int chunk = 4096;
+            for (long from = 0; from < corpus.count(); from += chunk) {
+                long to = Math.min(corpus.count(), from + chunk);
+                Board[] puzzles = corpus.slice(from, to);
+                for (int i = 0; i < puzzles.length; i++) {
+                    writer.write(puzzles[i].toString());
+                    if (corpus.hasSolutions()) {
+                        writer.write(' ');
+                        writer.write(corpus.solution(from + i).toString());
+                    }
+                    writer.write('\n');
+                }
+            }
+        }
+    }
+}
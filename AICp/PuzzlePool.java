@@ -0,0 +1,144 @@
+package AICp;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Keeps a bounded queue of ready-made puzzles for every difficulty level.
+ * Background producer threads refill the queues, so generating a puzzle is
+ * normally just a dequeue instead of a full generate-and-solve.
+ */
+public class PuzzlePool {
+    public static final int DIFFICULTY_LEVELS = 3; // easy, medium, hard
+    static final int DEFAULT_CAPACITY = 32;
+
+    // Puzzles are held as frozen Boards: one byte per cell instead of an int[][] per puzzle
+    private final BlockingQueue<Board>[] queues;
+    private final Thread[] producers;
+    private final int subgrid;
+    private final SudokuLogicBackTracking generator;
+    private volatile boolean running;
+
+    public PuzzlePool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PuzzlePool(int capacity) {
+        this(capacity, 3);
+    }
+
+    /**
+     * @param subgrid box side length of the generated boards (3 for 9x9, 4 for 16x16, ...)
+     */
+    @SuppressWarnings("unchecked")
+    public PuzzlePool(int capacity, int subgrid) {
+        this.subgrid = subgrid;
+        generator = new SudokuLogicBackTracking(subgrid);
+        queues = (BlockingQueue<Board>[]) new BlockingQueue<?>[DIFFICULTY_LEVELS];
+        producers = new Thread[DIFFICULTY_LEVELS];
+        for (int d = 0; d < DIFFICULTY_LEVELS; d++) {
+            queues[d] = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+
+    /**
+     * Starts one daemon producer per difficulty. Producers block once their
+     * queue is full and resume as soon as a puzzle is taken.
+     */
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        for (int d = 0; d < DIFFICULTY_LEVELS; d++) {
+            final int difficulty = d;
+            Thread producer = new Thread(() -> produce(difficulty), "puzzle-pool-" + d);
+            producer.setDaemon(true);
+            producer.setPriority(Thread.MIN_PRIORITY);
+            producers[d] = producer;
+            producer.start();
+        }
+    }
+
+    public synchronized void shutdown() {
+        running = false;
+        for (Thread producer : producers) {
+            if (producer != null) producer.interrupt();
+        }
+    }
+
+    private void produce(int difficulty) {
+        SudokuLogicBackTracking local = new SudokuLogicBackTracking(subgrid);
+        try {
+            while (running) {
+                queues[difficulty].put(Board.of(local.generatePuzzle(difficulty)).freeze());
+            }
+        } catch (InterruptedException | CancellationException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns a ready puzzle for the given difficulty. Only falls back to
+     * generating synchronously when the pool has not caught up yet.
+     */
+    public int[][] take(int difficulty) {
+        Board puzzle = queues[difficulty].poll();
+        return puzzle != null ? puzzle.toArray() : generator.generatePuzzle(difficulty);
+    }
+
+    public int available(int difficulty) {
+        return queues[difficulty].size();
+    }
+
+    /**
+     * Writes the pooled puzzles as "difficulty:cells" lines so the next run
+     * can start warm. Each cell is one character, '0' + value, which also
+     * covers the digits of 16x16 and larger boards.
+     */
+    public void save(File file) throws IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.US_ASCII))) {
+            for (int d = 0; d < DIFFICULTY_LEVELS; d++) {
+                for (Board puzzle : queues[d]) {
+                    out.write(d + ":" + puzzle + "\n");
+                }
+            }
+        }
+    }
+
+    public void load(File file) throws IOException {
+        if (!file.isFile()) return;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                int sep = line.indexOf(':');
+                if (sep < 0) continue;
+                int d = Integer.parseInt(line.substring(0, sep).trim());
+                if (d < 0 || d >= DIFFICULTY_LEVELS) continue;
+                Board puzzle = Board.parse(line.substring(sep + 1).trim()).freeze();
+                if (puzzle.size() == subgrid * subgrid) queues[d].offer(puzzle);
+            }
+        }
+    }
+
+    /**
+     * Loads the given file now and saves the pool back to it when the JVM exits.
+     */
+    public void persistOnShutdown(File file) {
+        try {
+            load(file);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable puzzle pool " + file + ": " + e.getMessage());
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                save(file);
+            } catch (IOException e) {
+                System.err.println("Could not save puzzle pool: " + e.getMessage());
+            }
+        }, "puzzle-pool-save"));
+    }
+}
@@ -0,0 +1,165 @@
+package AICp;
+
+import java.io.*;
+
+/**
+ * Fixed-size ring buffer of search events: decisions, propagated cells and
+ * undos, one int each. Recording is a store and an increment, and solvers
+ * only pay a null check when no trace is passed. When the buffer wraps the
+ * oldest events are dropped; the board before the oldest kept event is
+ * rebuilt by running the kept events backwards from the final board.
+ *
+ * Event layout: type in bits 30-31, cell (row * size + col) in bits 6-29,
+ * digit in bits 0-5.
+ */
+public final class SearchTrace {
+    public static final int PLACE = 0;
+    public static final int PROPAGATE = 1;
+    public static final int UNDO = 2;
+
+    private static final int MAGIC = 0x53445452; // "SDTR"
+
+    private final int[] events;
+    private final int mask;
+    private long total;
+    private int size;
+    private byte[] finalCells;
+
+    /**
+     * @param capacity events kept, rounded up to a power of two
+     */
+    public SearchTrace(int capacity) {
+        int rounded = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        events = new int[rounded];
+        mask = rounded - 1;
+    }
+
+    void begin(int[][] board) {
+        total = 0;
+        size = board.length;
+        finalCells = null;
+    }
+
+    void end(int[][] board) {
+        finalCells = new byte[size * size];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                finalCells[r * size + c] = (byte) board[r][c];
+            }
+        }
+    }
+
+    void place(int cell, int value) {
+        events[(int) (total++ & mask)] = PLACE << 30 | cell << 6 | value;
+    }
+
+    void propagate(int cell, int value) {
+        events[(int) (total++ & mask)] = PROPAGATE << 30 | cell << 6 | value;
+    }
+
+    void undo(int cell, int value) {
+        events[(int) (total++ & mask)] = UNDO << 30 | cell << 6 | value;
+    }
+
+    public int boardSize() {
+        return size;
+    }
+
+    /**
+     * Events recorded, including any dropped when the buffer wrapped.
+     */
+    public long total() {
+        return total;
+    }
+
+    public int retained() {
+        return (int) Math.min(total, events.length);
+    }
+
+    public long dropped() {
+        return total - retained();
+    }
+
+    private int event(int i) {
+        if (i < 0 || i >= retained()) throw new IndexOutOfBoundsException("Event " + i + " of " + retained());
+        return events[(int) ((dropped() + i) & mask)];
+    }
+
+    /**
+     * Type of the i-th kept event, oldest first.
+     */
+    public int type(int i) {
+        return event(i) >>> 30;
+    }
+
+    public int cell(int i) {
+        return event(i) >>> 6 & 0xFFFFFF;
+    }
+
+    public int value(int i) {
+        return event(i) & 0x3F;
+    }
+
+    /**
+     * Board just before the oldest kept event, one byte per cell.
+     */
+    public byte[] startCells() {
+        if (finalCells == null) throw new IllegalStateException("Trace not finished");
+        byte[] cells = finalCells.clone();
+        for (int i = retained() - 1; i >= 0; i--) {
+            cells[cell(i)] = (byte) (type(i) == UNDO ? value(i) : 0);
+        }
+        return cells;
+    }
+
+    /**
+     * Applies the i-th kept event to cells, or reverts it.
+     */
+    public void apply(byte[] cells, int i, boolean forward) {
+        boolean sets = type(i) != UNDO;
+        cells[cell(i)] = (byte) (sets == forward ? value(i) : 0);
+    }
+
+    public void write(OutputStream out) throws IOException {
+        if (finalCells == null) throw new IllegalStateException("Trace not finished");
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeByte(size);
+        data.writeLong(total);
+        data.writeInt(retained());
+        data.write(finalCells);
+        for (int i = 0; i < retained(); i++) {
+            data.writeInt(event(i));
+        }
+        data.flush();
+    }
+
+    public static SearchTrace read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC) throw new IOException("Not a search trace");
+        int size = data.readUnsignedByte();
+        long total = data.readLong();
+        int retained = data.readInt();
+        SearchTrace trace = new SearchTrace(retained);
+        trace.size = size;
+        trace.finalCells = new byte[size * size];
+        data.readFully(trace.finalCells);
+        for (int i = 0; i < retained; i++) {
+            trace.events[i] = data.readInt();
+        }
+        // Keep the kept events at the front of the buffer, oldest first
+        trace.total = retained;
+        return total == retained ? trace : trace.withDropped(total - retained);
+    }
+
+    private SearchTrace withDropped(long dropped) {
+        // Rotate so that index (dropped + i) & mask still finds event i
+        int[] rotated = new int[events.length];
+        for (int i = 0; i < total; i++) {
+            rotated[(int) ((dropped + i) & mask)] = events[i];
+        }
+        System.arraycopy(rotated, 0, events, 0, events.length);
+        total += dropped;
+        return this;
+    }
+}
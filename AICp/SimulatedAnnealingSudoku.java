@@ -1,63 +1,147 @@
 package AICp;
+import java.io.DataInputStream;
 import java.util.*;
-import java.util.stream.IntStream;
 
 public class SimulatedAnnealingSudoku {
-    private static final int SIZE = 9;
     private static final double COOLING_RATE = 0.99;
     private static final int MAX_ATTEMPTS = 10; // Maximum number of attempts to solve
+    private static final String ENGINE = "Simulated Anneling";
 
     public static boolean solve(int[][] board) {
+        return solve(board, SolverRandom.unseeded(), null);
+    }
+
+    /**
+     * Same as {@link #solve(int[][])}, but saves the chain to checkpoint
+     * periodically and, if the checkpoint file already holds a run on this
+     * puzzle, resumes that run instead of starting afresh. The file is
+     * removed when the run ends.
+     */
+    public static boolean solve(int[][] board, Checkpoint checkpoint) {
+        return solve(board, SolverRandom.unseeded(), checkpoint);
+    }
+
+    /**
+     * Repeatable run: the same seed on the same puzzle gives the same result.
+     */
+    public static boolean solve(int[][] board, SolverRandom random) {
+        return solve(board, random, null);
+    }
+
+    /**
+     * A resumed run continues with the random state saved in the checkpoint
+     * rather than random.
+     */
+    public static boolean solve(int[][] board, SolverRandom random, Checkpoint checkpoint) {
+        SolverEvents.Solve event = SolverEvents.begin(ENGINE, board);
+        boolean solved = anneal(board, random, checkpoint);
+        SolverEvents.end(event, solved);
+        return solved;
+    }
+
+    private static boolean anneal(int[][] board, SolverRandom random, Checkpoint checkpoint) {
         try {
+            int[][] puzzle = Arrays.stream(board).map(int[]::clone).toArray(int[][]::new);
             int[][] fixedSudoku = markFixedCells(board);
-            List<List<int[]>> blocks = create3x3Blocks();
-            
-            // Fill the board in-place
-            fillBoardInPlace(board, blocks);
-            
-            double sigma = calculateInitialSigma(board, fixedSudoku, blocks);
+            List<List<int[]>> blocks = createBlocks(board.length);
+            List<List<int[]>> movable = movableCells(blocks, fixedSudoku);
+            Conflicts conflicts = new Conflicts(board.length);
+            Checkpoint.Resume saved = checkpoint == null ? null : checkpoint.resume(ENGINE, puzzle);
+
+            SolverRandom rand;
+            final double sigma;
+            int firstAttempt = 0;
+            double resumedSigma = 0;
+            long resumedProposals = 0, resumedAccepted = 0;
+            if (saved != null) {
+                rand = saved.random;
+                DataInputStream in = saved.in;
+                firstAttempt = in.readInt();
+                sigma = in.readDouble();
+                resumedSigma = in.readDouble();
+                resumedProposals = in.readLong();
+                resumedAccepted = in.readLong();
+                copyBoard(Checkpoint.readBoard(in), board);
+            } else {
+                rand = random;
+                // Fill the board in-place
+                fillBoardInPlace(board, blocks, rand);
+                conflicts.reset(board);
+                sigma = movable.isEmpty() ? 0 : calculateInitialSigma(board, conflicts, movable, rand);
+            }
+            if (movable.isEmpty()) {
+                conflicts.reset(board);
+                return conflicts.score == 0; // no swap possible, the fill is the only candidate
+            }
             int iterations = countNonZeroCells(fixedSudoku);
             
             // Try multiple times to find a solution
-            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
-                int score = calculateErrors(board);
-                double currentSigma = sigma;
+            for (int attempt = firstAttempt; attempt < MAX_ATTEMPTS; attempt++) {
+                SolverEvents.AnnealingAttempt summary = new SolverEvents.AnnealingAttempt();
+                summary.begin();
+                conflicts.reset(board);
+                boolean resumed = saved != null && attempt == firstAttempt;
+                double currentSigma = resumed ? resumedSigma : sigma;
+                long proposals = resumed ? resumedProposals : 0, accepted = resumed ? resumedAccepted : 0;
                 
-                while (score > 0 && currentSigma > 0.01) {  // Add minimum temperature threshold
+                outer:
+                while (conflicts.score > 0 && currentSigma > 0.01) {  // Add minimum temperature threshold
                     for (int i = 0; i < iterations; i++) {
-                        var result = chooseNewState(board, fixedSudoku, blocks, currentSigma);
-                        if (result.sudoku != board) {  // If a new state was accepted
-                            copyBoard(result.sudoku, board);
-                            score += result.costDifference;
-                        }
-                        if (score == 0) return true;
+                        proposals++;
+                        if (chooseNewState(board, conflicts, movable, currentSigma, rand)) accepted++;
+                        if (conflicts.score == 0) break outer;
                     }
                     currentSigma *= COOLING_RATE;
+                    if (checkpoint != null && checkpoint.due()) {
+                        int a = attempt;
+                        double s = currentSigma;
+                        long p = proposals, acc = accepted;
+                        checkpoint.save(ENGINE, puzzle, rand, out -> {
+                            out.writeInt(a);
+                            out.writeDouble(sigma);
+                            out.writeDouble(s);
+                            out.writeLong(p);
+                            out.writeLong(acc);
+                            Checkpoint.writeBoard(out, board);
+                        });
+                    }
                 }
                 
-                if (score == 0) return true;
+                if (summary.shouldCommit()) {
+                    summary.attempt = attempt;
+                    summary.errors = conflicts.score;
+                    summary.sigma = currentSigma;
+                    summary.proposals = proposals;
+                    summary.accepted = accepted;
+                    summary.commit();
+                }
+                if (conflicts.score == 0) {
+                    if (checkpoint != null) checkpoint.clear();
+                    return true;
+                }
                 
                 // If not solved, reset and try again
                 if (attempt < MAX_ATTEMPTS - 1) {
-                    fillBoardInPlace(board, blocks);
+                    fillBoardInPlace(board, blocks, rand);
                 }
             }
             
+            if (checkpoint != null) checkpoint.clear();
             return false;  // Could not find solution
         } catch (Exception e) {
+            // Drop the snapshot too, so a state that cannot be restored does not fail every later run
+            if (checkpoint != null) checkpoint.clear();
             return false;  // Return false if any error occurs
         }
     }
 
     private static void copyBoard(int[][] source, int[][] destination) {
-        for (int i = 0; i < SIZE; i++) {
-            System.arraycopy(source[i], 0, destination[i], 0, SIZE);
+        for (int i = 0; i < source.length; i++) {
+            System.arraycopy(source[i], 0, destination[i], 0, source.length);
         }
     }
 
-    private static void fillBoardInPlace(int[][] board, List<List<int[]>> blocks) {
-        Random rand = new Random();
-        
+    private static void fillBoardInPlace(int[][] board, List<List<int[]>> blocks, SolverRandom rand) {
         for (List<int[]> block : blocks) {
             Set<Integer> used = new HashSet<>();
             // First collect fixed numbers in this block
@@ -72,7 +156,7 @@ public class SimulatedAnnealingSudoku {
                 if (board[cell[0]][cell[1]] == 0) {
                     int num;
                     do {
-                        num = rand.nextInt(9) + 1;
+                        num = rand.nextInt(board.length) + 1;
                     } while (used.contains(num));
                     board[cell[0]][cell[1]] = num;
                     used.add(num);
@@ -81,22 +165,40 @@ public class SimulatedAnnealingSudoku {
         }
     }
 
+    /**
+     * The free cells of each block that has at least two, the only blocks
+     * where a swap can be proposed.
+     */
+    private static List<List<int[]>> movableCells(List<List<int[]>> blocks, int[][] fixedSudoku) {
+        List<List<int[]>> movable = new ArrayList<>();
+        for (List<int[]> block : blocks) {
+            List<int[]> free = new ArrayList<>();
+            for (int[] cell : block) {
+                if (fixedSudoku[cell[0]][cell[1]] == 0) free.add(cell);
+            }
+            if (free.size() >= 2) movable.add(free);
+        }
+        return movable;
+    }
+
     private static int[][] markFixedCells(int[][] board) {
-        int[][] fixed = new int[SIZE][SIZE];
-        for (int i = 0; i < SIZE; i++) {
-            for (int j = 0; j < SIZE; j++) {
+        int size = board.length;
+        int[][] fixed = new int[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
                 if (board[i][j] != 0) fixed[i][j] = 1;
             }
         }
         return fixed;
     }
 
-    private static List<List<int[]>> create3x3Blocks() {
+    private static List<List<int[]>> createBlocks(int size) {
+        int box = SudokuLogicBackTracking.boxSize(size);
         List<List<int[]>> blocks = new ArrayList<>();
-        for (int i = 0; i < SIZE; i++) {
+        for (int i = 0; i < size; i++) {
             List<int[]> block = new ArrayList<>();
-            for (int r = (i / 3) * 3; r < (i / 3) * 3 + 3; r++) {
-                for (int c = (i % 3) * 3; c < (i % 3) * 3 + 3; c++) {
+            for (int r = (i / box) * box; r < (i / box) * box + box; r++) {
+                for (int c = (i % box) * box; c < (i % box) * box + box; c++) {
                     block.add(new int[]{r, c});
                 }
             }
@@ -112,26 +214,14 @@ public class SimulatedAnnealingSudoku {
                 .count();
     }
 
-    private static int calculateErrors(int[][] board) {
-        int errors = 0;
-        for (int i = 0; i < SIZE; i++) {
-            errors += calculateErrorsInRowColumn(i, board);
-        }
-        return errors;
-    }
-
-    private static int calculateErrorsInRowColumn(int index, int[][] board) {
-        int rowErrors = SIZE - (int) Arrays.stream(board[index]).distinct().count();
-        int colErrors = SIZE - (int) IntStream.range(0, SIZE).map(i -> board[i][index]).distinct().count();
-        return rowErrors + colErrors;
-    }
-
-    private static double calculateInitialSigma(int[][] board, int[][] fixedSudoku, List<List<int[]>> blocks) {
+    private static double calculateInitialSigma(int[][] board, Conflicts conflicts, List<List<int[]>> blocks,
+                                                SolverRandom rand) {
         List<Integer> differences = new ArrayList<>();
         
         for (int i = 0; i < 10; i++) {
-            var proposal = proposeNewState(board, fixedSudoku, blocks);
-            differences.add(calculateErrors(proposal.sudoku));
+            proposeNewState(board, conflicts, blocks, rand);
+            differences.add(conflicts.score);
+            conflicts.undo(board);
         }
         
         double mean = differences.stream().mapToInt(Integer::intValue).average().orElse(0.0);
@@ -143,44 +233,95 @@ public class SimulatedAnnealingSudoku {
         return Math.sqrt(variance);
     }
 
-    private static Proposal chooseNewState(int[][] board, int[][] fixedSudoku, List<List<int[]>> blocks, double sigma) {
-        var proposal = proposeNewState(board, fixedSudoku, blocks);
-        int[][] newSudoku = proposal.sudoku;
-        int costDifference = calculateErrors(newSudoku) - calculateErrors(board);
+    /**
+     * Proposes a swap and keeps it with the Metropolis probability, swapping
+     * back otherwise. Returns whether it was kept.
+     */
+    private static boolean chooseNewState(int[][] board, Conflicts conflicts, List<List<int[]>> blocks, double sigma,
+                                          SolverRandom rand) {
+        int costDifference = proposeNewState(board, conflicts, blocks, rand);
 
-        if (costDifference < 0 || Math.exp(-costDifference / sigma) > Math.random()) {
-            return new Proposal(newSudoku, costDifference);
+        if (costDifference < 0 || Math.exp(-costDifference / sigma) > rand.nextDouble()) {
+            return true;
         }
-        return new Proposal(board, 0);
+        conflicts.undo(board);
+        return false;
     }
 
-    private static Proposal proposeNewState(int[][] board, int[][] fixedSudoku, List<List<int[]>> blocks) {
-        Random rand = new Random();
+    /**
+     * Swaps two distinct free cells of one block in place and returns the
+     * change in cost. blocks holds only free cells, at least two per block.
+     */
+    private static int proposeNewState(int[][] board, Conflicts conflicts, List<List<int[]>> blocks,
+                                       SolverRandom rand) {
         List<int[]> block = blocks.get(rand.nextInt(blocks.size()));
-        int[][] newSudoku = Arrays.stream(board).map(int[]::clone).toArray(int[][]::new);
+        int i = rand.nextInt(block.size());
+        int j = rand.nextInt(block.size() - 1);
+        if (j >= i) j++;
+        int[] first = block.get(i);
+        int[] second = block.get(j);
+        return conflicts.swap(board, first[0], first[1], second[0], second[1]);
+    }
 
-        int[] first = block.get(rand.nextInt(block.size()));
-        int[] second = block.get(rand.nextInt(block.size()));
+    /**
+     * Digit counts per row and column of the board being annealed, kept in
+     * step with its swaps, so a swap's cost change comes from the two rows
+     * and two columns it touches. The cost is the number of repeated digits
+     * over all rows and columns.
+     */
+    private static final class Conflicts {
+        private final int size;
+        // rowCount[row * (size + 1) + digit], likewise for columns
+        private final int[] rowCount;
+        private final int[] colCount;
+        int score;
+        // The last swap, for undo
+        private int row1, col1, row2, col2;
 
-        while (fixedSudoku[first[0]][first[1]] == 1 || fixedSudoku[second[0]][second[1]] == 1) {
-            first = block.get(rand.nextInt(block.size()));
-            second = block.get(rand.nextInt(block.size()));
+        Conflicts(int size) {
+            this.size = size;
+            rowCount = new int[size * (size + 1)];
+            colCount = new int[size * (size + 1)];
         }
 
-        int temp = newSudoku[first[0]][first[1]];
-        newSudoku[first[0]][first[1]] = newSudoku[second[0]][second[1]];
-        newSudoku[second[0]][second[1]] = temp;
+        void reset(int[][] board) {
+            Arrays.fill(rowCount, 0);
+            Arrays.fill(colCount, 0);
+            score = 0;
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    int v = board[r][c];
+                    if (rowCount[r * (size + 1) + v]++ > 0) score++;
+                    if (colCount[c * (size + 1) + v]++ > 0) score++;
+                }
+            }
+        }
 
-        return new Proposal(newSudoku, 0);
-    }
+        int swap(int[][] board, int r1, int c1, int r2, int c2) {
+            row1 = r1;
+            col1 = c1;
+            row2 = r2;
+            col2 = c2;
+            int a = board[r1][c1], b = board[r2][c2];
+            board[r1][c1] = b;
+            board[r2][c2] = a;
+            int delta = 0;
+            if (r1 != r2) delta += replace(rowCount, r1, a, b) + replace(rowCount, r2, b, a);
+            if (c1 != c2) delta += replace(colCount, c1, a, b) + replace(colCount, c2, b, a);
+            score += delta;
+            return delta;
+        }
 
-    private static class Proposal {
-        int[][] sudoku;
-        int costDifference;
+        void undo(int[][] board) {
+            swap(board, row1, col1, row2, col2);
+        }
 
-        Proposal(int[][] sudoku, int costDifference) {
-            this.sudoku = sudoku;
-            this.costDifference = costDifference;
+        // Change in repeats when one out in line becomes in
+        private int replace(int[] count, int line, int out, int in) {
+            int base = line * (size + 1);
+            int delta = --count[base + out] > 0 ? -1 : 0;
+            if (count[base + in]++ > 0) delta++;
+            return delta;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,166 @@
+package AICp;
+
+import java.util.ArrayDeque;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Every solution of a puzzle as a lazy stream. The search is a depth-first
+ * walk over an explicit stack of open partial boards, so a solution is only
+ * computed when the stream asks for one, limit(n) stops the walk, and memory
+ * stays proportional to the search depth however many solutions exist.
+ * trySplit hands half of the open subtrees to another spliterator, which is
+ * what lets parallel() spread one puzzle over several cores.
+ *
+ * Solutions come out in no particular order.
+ */
+public final class SolutionEnumerator {
+    private SolutionEnumerator() {
+    }
+
+    public static Stream<Board> solutions(Board puzzle) {
+        return StreamSupport.stream(new Search(puzzle), false);
+    }
+
+    public static Stream<Board> solutions(int[][] puzzle) {
+        return solutions(Board.of(puzzle));
+    }
+
+    /**
+     * Number of solutions, counting no further than limit.
+     */
+    public static long count(Board puzzle, long limit) {
+        return solutions(puzzle).limit(limit).count();
+    }
+
+    public static boolean hasUniqueSolution(Board puzzle) {
+        return count(puzzle, 2) == 1;
+    }
+
+    private static final class Search implements Spliterator<Board> {
+        private final int size;
+        private final int box;
+        private final long all;
+        // Open partial boards, one byte per cell; the last one is explored next
+        private final ArrayDeque<byte[]> open = new ArrayDeque<>();
+
+        Search(Board puzzle) {
+            size = puzzle.size();
+            box = puzzle.box();
+            all = SudokuLogicBackTracking.allDigits(size);
+            byte[] cells = new byte[size * size];
+            for (int i = 0; i < cells.length; i++) cells[i] = (byte) puzzle.get(i);
+            if (consistent(cells)) open.push(cells);
+        }
+
+        private Search(int size, int box, long all) {
+            this.size = size;
+            this.box = box;
+            this.all = all;
+        }
+
+        private boolean consistent(byte[] cells) {
+            long[] rows = new long[size], cols = new long[size], boxes = new long[size];
+            for (int cell = 0; cell < cells.length; cell++) {
+                if (cells[cell] == 0) continue;
+                int r = cell / size, c = cell % size, b = r / box * box + c / box;
+                long bit = 1L << (cells[cell] - 1);
+                if (((rows[r] | cols[c] | boxes[b]) & bit) != 0) return false;
+                rows[r] |= bit;
+                cols[c] |= bit;
+                boxes[b] |= bit;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Board> action) {
+            while (!open.isEmpty()) {
+                byte[] node = open.pop();
+                if (expand(node)) {
+                    action.accept(Board.wrap(node, 0, size));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Pushes the children of node for its most constrained empty cell;
+         * returns true if node has no empty cell, i.e. is a solution.
+         */
+        private boolean expand(byte[] node) {
+            long[] rows = new long[size], cols = new long[size], boxes = new long[size];
+            for (int cell = 0; cell < node.length; cell++) {
+                if (node[cell] == 0) continue;
+                int r = cell / size, c = cell % size;
+                long bit = 1L << (node[cell] - 1);
+                rows[r] |= bit;
+                cols[c] |= bit;
+                boxes[r / box * box + c / box] |= bit;
+            }
+            int best = -1;
+            long bestCandidates = 0;
+            int fewest = Integer.MAX_VALUE;
+            for (int cell = 0; cell < node.length; cell++) {
+                if (node[cell] != 0) continue;
+                int r = cell / size, c = cell % size;
+                long candidates = all & ~(rows[r] | cols[c] | boxes[r / box * box + c / box]);
+                int count = Long.bitCount(candidates);
+                if (count < fewest) {
+                    fewest = count;
+                    best = cell;
+                    bestCandidates = candidates;
+                    if (count == 0) return false; // dead end
+                }
+            }
+            if (best < 0) return true;
+            // Push the highest digit first so the lowest is explored first
+            while (bestCandidates != 0) {
+                long bit = Long.highestOneBit(bestCandidates);
+                bestCandidates ^= bit;
+                byte[] child = bestCandidates == 0 ? node : node.clone();
+                child[best] = (byte) (Long.numberOfTrailingZeros(bit) + 1);
+                open.push(child);
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<Board> trySplit() {
+            // Expand until there is more than one open subtree to share
+            while (open.size() == 1) {
+                byte[] node = open.peek();
+                if (!hasEmptyCell(node)) return null;
+                open.pop();
+                expand(node);
+            }
+            if (open.size() < 2) return null;
+            // The oldest entries sit nearest the root and hold the largest subtrees
+            Search other = new Search(size, box, all);
+            for (int n = open.size() / 2; n > 0; n--) {
+                other.open.push(open.pollLast());
+            }
+            return other;
+        }
+
+        private static boolean hasEmptyCell(byte[] node) {
+            for (byte value : node) {
+                if (value == 0) return true;
+            }
+            return false;
+        }
+
+        @Override
+        public long estimateSize() {
+            return open.isEmpty() ? 0 : Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return DISTINCT | NONNULL;
+        }
+    }
+}
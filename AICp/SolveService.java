@@ -0,0 +1,260 @@
+package AICp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local HTTP solve service on the JDK's built-in server.
+ *
+ *   POST /solve?solver=MRV     body: one puzzle, one character per cell
+ *   POST /batch?solver=MRV     body: NDJSON, one {"puzzle": "..."} (or bare string) per line
+ *   GET  /solvers              names accepted by the solver parameter
+ *
+ * Without a solver parameter, {@link AdaptiveSolverSelector} picks one per puzzle.
+ *
+ * Requests run on their own (virtual, where the JDK has them) threads and
+ * only wait; the solving happens on an {@link AsyncSolver} with one thread
+ * per core. Admission is bounded by a semaphore sized to that pool plus its
+ * queue, and requests that cannot get a slot are answered 429 instead of
+ * piling up.
+ */
+public class SolveService {
+    private static final String DEFAULT_SOLVER = "Auto";
+    private static final Pattern PUZZLE_FIELD = Pattern.compile("\"puzzle\"\\s*:\\s*\"([^\"]*)\"");
+    private static final Pattern BARE_STRING = Pattern.compile("^\\s*\"([^\"]*)\"\\s*$");
+
+    private final HttpServer server;
+    private final ExecutorService requestExecutor;
+    private final AsyncSolver solver;
+    private final Semaphore admission;
+    private final int batchWindow;
+
+    public SolveService(int port, int solverThreads, int queueCapacity) throws IOException {
+        solver = new AsyncSolver(solverThreads, queueCapacity);
+        admission = new Semaphore(solverThreads + queueCapacity);
+        batchWindow = solverThreads;
+        requestExecutor = requestExecutor();
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(requestExecutor);
+        server.createContext("/solve", this::handleSolve);
+        server.createContext("/batch", this::handleBatch);
+        server.createContext("/solvers", this::handleSolvers);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        solver.close();
+        requestExecutor.shutdownNow();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Virtual thread per request on JDKs that have them (21+), looked up
+     * reflectively so the project still builds on older JDKs, which get a
+     * cached pool of platform threads instead.
+     */
+    private static ExecutorService requestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "request");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    private void handleSolve(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "{\"error\":\"use POST\"}");
+                return;
+            }
+            String solver = solverName(exchange);
+            Board puzzle = Board.parse(readBody(exchange).trim());
+            if (!admission.tryAcquire()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 429, "{\"error\":\"solver pool saturated\"}");
+                return;
+            }
+            send(exchange, 200, await(submit(solver, puzzle)));
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, "{\"error\":" + quote(e.getMessage()) + "}");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(exchange, 503, "{\"error\":\"interrupted\"}");
+        }
+    }
+
+    /**
+     * Streams one result line per input line, in input order. A saturated
+     * pool rejects the batch up front; once admitted, the batch keeps at most
+     * one solve per solver thread in flight and waits for slots after that.
+     */
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "{\"error\":\"use POST\"}");
+                return;
+            }
+            String solver = solverName(exchange);
+            if (!admission.tryAcquire()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 429, "{\"error\":\"solver pool saturated\"}");
+                return;
+            }
+            boolean holdingFirstPermit = true;
+
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+            exchange.sendResponseHeaders(200, 0);
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+                 Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8))) {
+                Deque<Future<String>> inFlight = new ArrayDeque<>();
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.trim().isEmpty()) continue;
+                    String text = extractPuzzle(line);
+                    Board puzzle;
+                    try {
+                        puzzle = Board.parse(text);
+                    } catch (IllegalArgumentException e) {
+                        inFlight.add(CompletableFuture.completedFuture("{\"error\":" + quote(e.getMessage()) + "}"));
+                        continue;
+                    }
+                    if (inFlight.size() >= batchWindow) {
+                        out.write(await(inFlight.poll()));
+                        out.write('\n');
+                    }
+                    if (holdingFirstPermit) {
+                        holdingFirstPermit = false;
+                    } else {
+                        admission.acquire();
+                    }
+                    inFlight.add(submit(solver, puzzle));
+                }
+                while (!inFlight.isEmpty()) {
+                    out.write(await(inFlight.poll()));
+                    out.write('\n');
+                }
+            } finally {
+                if (holdingFirstPermit) admission.release();
+            }
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, "{\"error\":" + quote(e.getMessage()) + "}");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleSolvers(HttpExchange exchange) throws IOException {
+        StringBuilder sb = new StringBuilder("[");
+        for (String name : SolverRegistry.names()) {
+            if (sb.length() > 1) sb.append(',');
+            sb.append(quote(name));
+        }
+        send(exchange, 200, sb.append(']').toString());
+    }
+
+    /**
+     * Runs the solve on the pool; the caller must already hold an admission
+     * permit, which is released when the solve finishes.
+     */
+    private Future<String> submit(String solverName, Board puzzle) {
+        long start = System.nanoTime();
+        return solver.solve(solverName, puzzle).whenComplete((result, error) -> admission.release())
+                .handle((result, error) -> {
+                    if (error instanceof CompletionException) error = error.getCause();
+                    if (error instanceof RejectedExecutionException) return "{\"error\":\"solver pool saturated\"}";
+                    if (error != null) return "{\"error\":" + quote(String.valueOf(error)) + "}";
+                    long micros = (System.nanoTime() - start) / 1000;
+                    return "{\"solved\":" + result.isPresent()
+                            + result.map(board -> ",\"solution\":" + quote(board.toString())).orElse("")
+                            + ",\"solver\":" + quote(solverName) + ",\"micros\":" + micros + "}";
+                });
+    }
+
+    private static String await(Future<String> result) throws InterruptedException {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            return "{\"error\":" + quote(String.valueOf(e.getCause())) + "}";
+        }
+    }
+
+    private static String solverName(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getRawQuery();
+        String name = DEFAULT_SOLVER;
+        if (query != null) {
+            for (String param : query.split("&")) {
+                if (param.startsWith("solver=")) {
+                    name = URLDecoder.decode(param.substring("solver=".length()), StandardCharsets.UTF_8);
+                }
+            }
+        }
+        SolverRegistry.get(name); // throws IllegalArgumentException for unknown names
+        return name;
+    }
+
+    private static String extractPuzzle(String line) {
+        Matcher m = PUZZLE_FIELD.matcher(line);
+        if (m.find()) return m.group(1);
+        m = BARE_STRING.matcher(line);
+        return m.matches() ? m.group(1) : line.trim();
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : String.valueOf(s).toCharArray()) {
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Usage: java AICp.SolveService [port] [queueCapacity]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int queue = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        SolveService service = new SolveService(port, Runtime.getRuntime().availableProcessors(), queue);
+        service.start();
+        System.out.println("Sudoku solve service listening on port " + service.port());
+    }
+}
@@ -0,0 +1,147 @@
+package AICp;
+
+import java.util.concurrent.CancellationException;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder events for the solvers. They cost almost nothing when no
+ * recording is running, and show up under "Sudoku" in JDK Mission Control
+ * next to GC and lock events, so a latency spike can be traced to the engine
+ * and puzzle that caused it.
+ */
+final class SolverEvents {
+    // A progress sample every 65536 search nodes
+    private static final long SAMPLE_MASK = (1L << 16) - 1;
+    // An interrupt check every 1024 nodes
+    private static final long INTERRUPT_MASK = (1L << 10) - 1;
+
+    private SolverEvents() {
+    }
+
+    @Name("AICp.Solve")
+    @Label("Sudoku Solve")
+    @Category("Sudoku")
+    @Description("One solve from start to finish")
+    static class Solve extends Event {
+        @Label("Solver")
+        String solver;
+
+        @Label("Board Size")
+        int size;
+
+        @Label("Clues")
+        int clues;
+
+        @Label("Solved")
+        boolean solved;
+    }
+
+    @Name("AICp.SearchProgress")
+    @Label("Search Progress")
+    @Category("Sudoku")
+    @Description("Nodes visited so far by a running search")
+    static class SearchProgress extends Event {
+        @Label("Solver")
+        String solver;
+
+        @Label("Nodes")
+        long nodes;
+    }
+
+    @Name("AICp.AnnealingAttempt")
+    @Label("Annealing Attempt")
+    @Category("Sudoku")
+    @Description("One simulated annealing run from a fresh random fill")
+    static class AnnealingAttempt extends Event {
+        @Label("Attempt")
+        int attempt;
+
+        @Label("Final Errors")
+        int errors;
+
+        @Label("Final Temperature")
+        double sigma;
+
+        @Label("Proposals")
+        long proposals;
+
+        @Label("Accepted")
+        long accepted;
+    }
+
+    @Name("AICp.GeneticRestart")
+    @Label("Genetic Algorithm Restart")
+    @Category("Sudoku")
+    @Description("One genetic algorithm population, up to its restart or the end of the solve")
+    static class GeneticRestart extends Event {
+        @Label("First Generation")
+        int firstGeneration;
+
+        @Label("Generations")
+        int generations;
+
+        @Label("Best Fitness")
+        int bestFitness;
+    }
+
+    static Solve begin(String solver, int[][] board) {
+        Solve event = new Solve();
+        if (event.isEnabled()) {
+            event.begin();
+            event.solver = solver;
+            event.size = board.length;
+            for (int[] row : board) {
+                for (int value : row) {
+                    if (value != 0) event.clues++;
+                }
+            }
+        }
+        return event;
+    }
+
+    static void end(Solve event, boolean solved) {
+        if (event.isEnabled()) {
+            event.solved = solved;
+            event.commit();
+        }
+    }
+
+    /**
+     * Counts search nodes and emits a SearchProgress sample every 65536.
+     * Every 1024 nodes it also checks whether the solving thread has been
+     * interrupted, and if so abandons the search with a
+     * CancellationException; the engines only write the board back on
+     * success, so it is left as it was.
+     */
+    static final class NodeCounter {
+        private final String solver;
+        private long nodes;
+
+        NodeCounter(String solver) {
+            this.solver = solver;
+        }
+
+        void tick() {
+            if ((++nodes & INTERRUPT_MASK) == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException(solver + " search interrupted");
+            }
+            if ((nodes & SAMPLE_MASK) == 0) {
+                SearchProgress sample = new SearchProgress();
+                if (sample.isEnabled()) {
+                    sample.solver = solver;
+                    sample.nodes = nodes;
+                    sample.commit();
+                }
+            }
+        }
+
+        long nodes() {
+            return nodes;
+        }
+    }
+}
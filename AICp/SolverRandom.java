@@ -0,0 +1,92 @@
+package AICp;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * The random source of one stochastic run: simulated annealing, the genetic
+ * algorithm or the puzzle generator. It wraps a SplittableRandom, which is
+ * cheap and uncontended, and is created from an explicit seed so a run can
+ * be repeated exactly; {@link #split()} derives an independent stream for
+ * work handed to another thread. Not thread-safe: one instance per run.
+ */
+public final class SolverRandom implements RandomGenerator {
+    private final long seed;
+    private SplittableRandom random;
+
+    public SolverRandom(long seed) {
+        this.seed = seed;
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * A generator with a fresh seed, for runs that need not be repeatable.
+     */
+    public static SolverRandom unseeded() {
+        return new SolverRandom(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * The seed this generator was created with.
+     */
+    public long seed() {
+        return seed;
+    }
+
+    public SolverRandom split() {
+        return new SolverRandom(random.nextLong());
+    }
+
+    /**
+     * Restarts the stream from a seed drawn from it and returns that seed;
+     * a generator created from the seed continues identically.
+     */
+    long reseed() {
+        long next = random.nextLong();
+        random = new SplittableRandom(next);
+        return next;
+    }
+
+    @Override
+    public long nextLong() {
+        return random.nextLong();
+    }
+
+    @Override
+    public int nextInt() {
+        return random.nextInt();
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    @Override
+    public double nextDouble() {
+        return random.nextDouble();
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return random.nextBoolean();
+    }
+
+    public <T> void shuffle(List<T> list) {
+        for (int i = list.size() - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            list.set(i, list.set(j, list.get(i)));
+        }
+    }
+
+    public void shuffle(int[] array) {
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+}
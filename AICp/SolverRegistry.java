@@ -0,0 +1,54 @@
+package AICp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Solvers by the names the GUI offers them under. Solves go through a shared
+ * canonical cache keyed by solver name, so equivalent puzzles are only solved
+ * once per engine and a named solver never returns another engine's result.
+ */
+public class SolverRegistry {
+    private static final int CACHE_CAPACITY = 10_000;
+
+    public interface Solver {
+        boolean solve(int[][] board);
+    }
+
+    private static final Map<String, Solver> SOLVERS = new LinkedHashMap<>();
+    private static final CanonicalSolveCache CACHE = new CanonicalSolveCache(CACHE_CAPACITY);
+
+    static {
+        SOLVERS.put("Backtracking", board -> new SudokuLogicBackTracking().solve(board));
+        SOLVERS.put("Constraint Programming", SudokuSolverCP::solveSudokuConstraint);
+        SOLVERS.put("MRV", SudokuSolverMRV::solve);
+        SOLVERS.put("Simulated Anneling", SimulatedAnnealingSudoku::solve);
+        SOLVERS.put("Genetic Algo", SudokuGA::solve);
+        SOLVERS.put("SAT", SudokuSolverSAT::solve);
+        SOLVERS.put("Auto", AdaptiveSolverSelector.shared());
+    }
+
+    public static String[] names() {
+        return SOLVERS.keySet().toArray(new String[0]);
+    }
+
+    public static Solver get(String name) {
+        Solver solver = SOLVERS.get(name);
+        if (solver == null) {
+            throw new IllegalArgumentException("Unknown solver: " + name);
+        }
+        return solver;
+    }
+
+    /**
+     * Solves the board in place with the named solver, or from the cache if
+     * that solver solved an equivalent puzzle before.
+     */
+    public static boolean solve(String name, int[][] board) {
+        return CACHE.solve(board, name, get(name));
+    }
+
+    public static CanonicalSolveCache cache() {
+        return CACHE;
+    }
+}
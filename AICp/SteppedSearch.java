@@ -0,0 +1,89 @@
+package AICp;
+
+/**
+ * A depth-first solve that runs in slices. {@link #step(long)} expands at
+ * most the given number of search nodes and returns; the search keeps its
+ * place on an explicit stack of (cell, remaining candidates) frames, so the
+ * next call carries on exactly where the last one stopped. Many solves can
+ * share a few worker threads by stepping each in turn, and since no engine
+ * recurses, the board size is not limited by the thread's stack.
+ *
+ * The backtracking, MRV and constraint programming solvers all run on this,
+ * their solve methods simply calling {@link #run()}. The caller's board is
+ * written only once a solution is found. Not thread-safe, but successive
+ * steps may run on different threads.
+ */
+public abstract class SteppedSearch {
+    public enum State { SUSPENDED, SOLVED, UNSOLVABLE }
+
+    private final int[][] board;
+    final ConstraintModel model;
+    final int[] grid;
+    final SolverEvents.NodeCounter nodes;
+    // The caller's table; without one no nogoods are kept
+    private final NogoodTable nogoods;
+    State state = State.SUSPENDED;
+
+    SteppedSearch(int[][] board, ConstraintModel model, String solver) {
+        this(board, model, solver, null);
+    }
+
+    SteppedSearch(int[][] board, ConstraintModel model, String solver, NogoodTable nogoods) {
+        if (board.length != model.size) throw new IllegalArgumentException("Model is for " + model.size + "x" + model.size);
+        this.board = board;
+        this.model = model;
+        grid = ConstraintModel.flatten(board);
+        nodes = new SolverEvents.NodeCounter(solver);
+        this.nogoods = nogoods;
+    }
+
+    final boolean isNogood(long hash) {
+        return nogoods != null && nogoods.contains(hash);
+    }
+
+    final void addNogood(long hash) {
+        if (nogoods != null) nogoods.add(hash);
+    }
+
+    /**
+     * Searches until solved, proven unsolvable or maxNodes nodes have been
+     * expanded, whichever comes first. Once finished, further calls return
+     * the final state without searching.
+     *
+     * An interrupt makes this throw CancellationException. Engines check
+     * for it only on entering a node, before changing anything, so a later
+     * call resumes from that node as if the slice had simply ended there.
+     */
+    public final State step(long maxNodes) {
+        if (maxNodes <= 0) throw new IllegalArgumentException("Node budget must be positive");
+        if (state == State.SUSPENDED) {
+            state = search(maxNodes);
+            if (state == State.SOLVED) ConstraintModel.unflatten(grid, board);
+        }
+        return state;
+    }
+
+    /**
+     * Searches to the end.
+     */
+    public final State run() {
+        return step(Long.MAX_VALUE);
+    }
+
+    public final State state() {
+        return state;
+    }
+
+    /**
+     * Nodes expanded so far, over all steps.
+     */
+    public final long nodes() {
+        return nodes.nodes();
+    }
+
+    /**
+     * Expands up to budget nodes, returning SUSPENDED if the budget runs
+     * out first.
+     */
+    abstract State search(long budget);
+}
@@ -0,0 +1,64 @@
+package AICp;
+
+/**
+ * Everything the GUIs do apart from drawing: solving, generating, checking
+ * moves and hints, for one board size. Nothing reachable from here touches
+ * AWT or Swing, so batch jobs and the solve service can use it in a headless
+ * JVM without loading the toolkit.
+ */
+public class SudokuCore {
+    private final SudokuLogicBackTracking generator;
+    private final PuzzlePool pool;
+    private final HintEngine hintEngine = new HintEngine();
+
+    public SudokuCore(int subgrid) {
+        this(subgrid, null);
+    }
+
+    /**
+     * @param pool pre-generated puzzles to serve from, or null to generate on demand
+     */
+    public SudokuCore(int subgrid, PuzzlePool pool) {
+        generator = new SudokuLogicBackTracking(subgrid);
+        this.pool = pool;
+    }
+
+    public int getSize() {
+        return generator.getSize();
+    }
+
+    public int getSubgrid() {
+        return generator.getSubgrid();
+    }
+
+    /**
+     * Solves the board in place with the named solver from {@link SolverRegistry}.
+     */
+    public boolean solve(String solverName, int[][] board) {
+        return SolverRegistry.solve(solverName, board);
+    }
+
+    /**
+     * New puzzle at the given difficulty (0 easy, 1 medium, 2 hard). Hints
+     * from the previous puzzle are forgotten.
+     */
+    public int[][] generate(int difficulty) {
+        hintEngine.invalidate();
+        return pool != null ? pool.take(difficulty) : generator.generatePuzzle(difficulty);
+    }
+
+    public boolean isValid(int[][] board, int row, int col, int num) {
+        return generator.isValid(board, row, col, num);
+    }
+
+    /**
+     * Filled cells that clash with another cell in their row, column or box.
+     */
+    public boolean[][] conflicts(int[][] board) {
+        return BulkValidator.conflicts(board);
+    }
+
+    public HintEngine.Hint hint(int[][] board) {
+        return hintEngine.hint(board);
+    }
+}
@@ -1,40 +1,96 @@
 package AICp;
+import java.io.DataInputStream;
 import java.util.*;
 
 public class SudokuGA {
-    private static final int SIZE = 9;
-    private static final int SUBGRID = 3;
     private static final int POPULATION_SIZE = 1000;
     private static final int MAX_GENERATIONS = 1000;
     private static final double MUTATION_RATE = 0.1;
     private static final double CROSSOVER_RATE = 0.95;
     private static final int STAGNATION_LIMIT = 50;
-    private static final Random rand = new Random();
+    private static final String ENGINE = "Genetic Algo";
 
     public static boolean solve(int[][] board) {
+        return solve(board, SolverRandom.unseeded(), null);
+    }
+
+    /**
+     * Same as {@link #solve(int[][])}, but saves the population and the best
+     * board so far to checkpoint periodically and, if the checkpoint file
+     * already holds a run on this puzzle, resumes that run instead of
+     * starting afresh. The file is removed when the run ends.
+     */
+    public static boolean solve(int[][] board, Checkpoint checkpoint) {
+        return solve(board, SolverRandom.unseeded(), checkpoint);
+    }
+
+    /**
+     * Repeatable run: the same seed on the same puzzle gives the same result.
+     */
+    public static boolean solve(int[][] board, SolverRandom random) {
+        return solve(board, random, null);
+    }
+
+    /**
+     * A resumed run continues with the random state saved in the checkpoint
+     * rather than random.
+     */
+    public static boolean solve(int[][] board, SolverRandom random, Checkpoint checkpoint) {
+        SolverEvents.Solve event = SolverEvents.begin(ENGINE, board);
+        boolean solved = evolve(board, random, checkpoint);
+        SolverEvents.end(event, solved);
+        return solved;
+    }
+
+    private static boolean evolve(int[][] board, SolverRandom random, Checkpoint checkpoint) {
+        int size = board.length;
         try {
             // Create a copy of the initial board
-            int[][] initialBoard = new int[SIZE][SIZE];
-            for (int i = 0; i < SIZE; i++) {
-                System.arraycopy(board[i], 0, initialBoard[i], 0, SIZE);
+            int[][] initialBoard = new int[size][size];
+            for (int i = 0; i < size; i++) {
+                System.arraycopy(board[i], 0, initialBoard[i], 0, size);
             }
 
-            List<int[][]> population = initializePopulation(initialBoard);
+            Checkpoint.Resume saved = checkpoint == null ? null : checkpoint.resume(ENGINE, initialBoard);
+            SolverRandom rand;
+            List<int[][]> population;
             int bestFitness = Integer.MIN_VALUE;
             int stagnationCounter = 0;
             int[][] lastBestSolution = null;
+            int firstGeneration = 0;
+            SolverEvents.GeneticRestart restart = new SolverEvents.GeneticRestart();
+            restart.begin();
+            restart.bestFitness = Integer.MIN_VALUE;
+            if (saved != null) {
+                rand = saved.random;
+                DataInputStream in = saved.in;
+                firstGeneration = in.readInt();
+                bestFitness = in.readInt();
+                stagnationCounter = in.readInt();
+                restart.firstGeneration = in.readInt();
+                restart.bestFitness = in.readInt();
+                if (in.readBoolean()) lastBestSolution = Checkpoint.readBoard(in);
+                int count = in.readInt();
+                population = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) population.add(Checkpoint.readBoard(in));
+                System.out.println("Resuming at generation " + firstGeneration);
+            } else {
+                rand = random;
+                population = initializePopulation(initialBoard, rand);
+            }
 
-            for (int generation = 0; generation < MAX_GENERATIONS; generation++) {
+            for (int generation = firstGeneration; generation < MAX_GENERATIONS; generation++) {
                 // Get mating pool using tournament selection
-                List<int[][]> matingPool = getMatingPool(population);
-                Collections.shuffle(matingPool);
+                List<int[][]> matingPool = getMatingPool(population, rand);
+                rand.shuffle(matingPool);
                 
                 // Create new population through crossover and mutation
-                population = evolvePopulation(matingPool, initialBoard);
+                population = evolvePopulation(matingPool, initialBoard, rand);
                 
                 // Find best solution
                 int[][] bestSolution = getBestSolution(population);
                 int currentFitness = calculateFitness(bestSolution);
+                restart.bestFitness = Math.max(restart.bestFitness, currentFitness);
                 
                 // Print progress every 10 generations
                 if (generation % 10 == 0) {
@@ -56,45 +112,85 @@ public class SudokuGA {
 
                 // Solution found
                 if (currentFitness == 0) {
+                    endRestart(restart, generation);
                     System.out.println("Solution found at generation " + generation);
-                    for (int i = 0; i < SIZE; i++) {
-                        System.arraycopy(bestSolution[i], 0, board[i], 0, SIZE);
+                    for (int i = 0; i < size; i++) {
+                        System.arraycopy(bestSolution[i], 0, board[i], 0, size);
                     }
+                    if (checkpoint != null) checkpoint.clear();
                     return true;
                 }
 
                 // Break if stuck
                 if (stagnationCounter >= STAGNATION_LIMIT) {
                     System.out.println("Stuck in local optimum. Restarting with new population...");
-                    population = initializePopulation(initialBoard);
+                    endRestart(restart, generation);
+                    restart = new SolverEvents.GeneticRestart();
+                    restart.begin();
+                    restart.firstGeneration = generation + 1;
+                    restart.bestFitness = Integer.MIN_VALUE;
+                    population = initializePopulation(initialBoard, rand);
                     stagnationCounter = 0;
                 }
+
+                if (checkpoint != null && checkpoint.due()) {
+                    save(checkpoint, initialBoard, rand, generation + 1, bestFitness, stagnationCounter,
+                            restart, lastBestSolution, population);
+                }
             }
+            endRestart(restart, MAX_GENERATIONS - 1);
+            if (checkpoint != null) checkpoint.clear();
             
             // If we didn't find a perfect solution, use the best one we found
             if (lastBestSolution != null) {
                 System.out.println("Best solution found (not perfect):");
                 printBoard(lastBestSolution);
-                for (int i = 0; i < SIZE; i++) {
-                    System.arraycopy(lastBestSolution[i], 0, board[i], 0, SIZE);
+                for (int i = 0; i < size; i++) {
+                    System.arraycopy(lastBestSolution[i], 0, board[i], 0, size);
                 }
             }
             
             return false;
         } catch (Exception e) {
             e.printStackTrace();
+            if (checkpoint != null) checkpoint.clear(); // resuming from it would fail the same way
             return false;
         }
     }
 
+    private static void save(Checkpoint checkpoint, int[][] initialBoard, SolverRandom rand, int nextGeneration,
+                             int bestFitness, int stagnationCounter, SolverEvents.GeneticRestart restart,
+                             int[][] lastBestSolution, List<int[][]> population) {
+        checkpoint.save(ENGINE, initialBoard, rand, out -> {
+            out.writeInt(nextGeneration);
+            out.writeInt(bestFitness);
+            out.writeInt(stagnationCounter);
+            out.writeInt(restart.firstGeneration);
+            out.writeInt(restart.bestFitness);
+            out.writeBoolean(lastBestSolution != null);
+            if (lastBestSolution != null) Checkpoint.writeBoard(out, lastBestSolution);
+            out.writeInt(population.size());
+            for (int[][] candidate : population) Checkpoint.writeBoard(out, candidate);
+        });
+    }
+
+    private static void endRestart(SolverEvents.GeneticRestart restart, int lastGeneration) {
+        if (restart.shouldCommit()) {
+            restart.generations = lastGeneration - restart.firstGeneration + 1;
+            restart.commit();
+        }
+    }
+
     private static void printBoard(int[][] board) {
+        int size = board.length;
+        int subgrid = SudokuLogicBackTracking.boxSize(size);
         System.out.println("Current best board:");
-        for (int i = 0; i < SIZE; i++) {
-            if (i % 3 == 0 && i != 0) {
-                System.out.println("-".repeat(21));
+        for (int i = 0; i < size; i++) {
+            if (i % subgrid == 0 && i != 0) {
+                System.out.println("-".repeat(2 * (size + subgrid - 1) - 1));
             }
-            for (int j = 0; j < SIZE; j++) {
-                if (j % 3 == 0 && j != 0) {
+            for (int j = 0; j < size; j++) {
+                if (j % subgrid == 0 && j != 0) {
                     System.out.print("| ");
                 }
                 System.out.print(board[i][j] + " ");
@@ -104,25 +200,26 @@ public class SudokuGA {
         System.out.println();
     }
 
-    private static List<int[][]> initializePopulation(int[][] initialBoard) {
+    private static List<int[][]> initializePopulation(int[][] initialBoard, SolverRandom rand) {
         List<int[][]> population = new ArrayList<>();
         for (int i = 0; i < POPULATION_SIZE; i++) {
-            population.add(generateCandidate(initialBoard));
+            population.add(generateCandidate(initialBoard, rand));
         }
         return population;
     }
 
-    private static int[][] generateCandidate(int[][] initialBoard) {
-        int[][] candidate = new int[SIZE][SIZE];
-        for (int row = 0; row < SIZE; row++) {
+    private static int[][] generateCandidate(int[][] initialBoard, SolverRandom rand) {
+        int size = initialBoard.length;
+        int[][] candidate = new int[size][size];
+        for (int row = 0; row < size; row++) {
             List<Integer> available = new ArrayList<>();
-            for (int i = 1; i <= SIZE; i++) {
+            for (int i = 1; i <= size; i++) {
                 available.add(i);
             }
-            Collections.shuffle(available);
+            rand.shuffle(available);
             
             // Copy fixed numbers from initial board
-            for (int col = 0; col < SIZE; col++) {
+            for (int col = 0; col < size; col++) {
                 if (initialBoard[row][col] != 0) {
                     candidate[row][col] = initialBoard[row][col];
                     available.remove(Integer.valueOf(initialBoard[row][col]));
@@ -131,7 +228,7 @@ public class SudokuGA {
             
             // Fill remaining cells
             int availableIndex = 0;
-            for (int col = 0; col < SIZE; col++) {
+            for (int col = 0; col < size; col++) {
                 if (candidate[row][col] == 0) {
                     candidate[row][col] = available.get(availableIndex++);
                 }
@@ -140,7 +237,7 @@ public class SudokuGA {
         return candidate;
     }
 
-    private static List<int[][]> getMatingPool(List<int[][]> population) {
+    private static List<int[][]> getMatingPool(List<int[][]> population, SolverRandom rand) {
         List<int[][]> matingPool = new ArrayList<>();
         
         // Sort population by fitness
@@ -148,14 +245,14 @@ public class SudokuGA {
         
         // Tournament selection
         while (matingPool.size() < population.size()) {
-            int[][] selected = tournamentSelect(population, 5);
+            int[][] selected = tournamentSelect(population, 5, rand);
             matingPool.add(cloneBoard(selected));
         }
         
         return matingPool;
     }
 
-    private static int[][] tournamentSelect(List<int[][]> population, int tournamentSize) {
+    private static int[][] tournamentSelect(List<int[][]> population, int tournamentSize, SolverRandom rand) {
         List<int[][]> tournament = new ArrayList<>();
         for (int i = 0; i < tournamentSize; i++) {
             tournament.add(population.get(rand.nextInt(population.size())));
@@ -163,7 +260,7 @@ public class SudokuGA {
         return Collections.max(tournament, Comparator.comparingInt(SudokuGA::calculateFitness));
     }
 
-    private static List<int[][]> evolvePopulation(List<int[][]> matingPool, int[][] initialBoard) {
+    private static List<int[][]> evolvePopulation(List<int[][]> matingPool, int[][] initialBoard, SolverRandom rand) {
         List<int[][]> newPopulation = new ArrayList<>();
         
         // Keep best solution (elitism)
@@ -174,9 +271,9 @@ public class SudokuGA {
             int[][] parent2 = matingPool.get(i);
             
             if (rand.nextDouble() < CROSSOVER_RATE) {
-                int[][][] children = crossover(parent1, parent2);
-                mutate(children[0], initialBoard);
-                mutate(children[1], initialBoard);
+                int[][][] children = crossover(parent1, parent2, rand);
+                mutate(children[0], initialBoard, rand);
+                mutate(children[1], initialBoard, rand);
                 newPopulation.add(children[0]);
                 if (newPopulation.size() < POPULATION_SIZE) {
                     newPopulation.add(children[1]);
@@ -197,19 +294,21 @@ public class SudokuGA {
     }
 
     private static int[][] cloneBoard(int[][] board) {
-        int[][] clone = new int[SIZE][SIZE];
-        for (int i = 0; i < SIZE; i++) {
-            System.arraycopy(board[i], 0, clone[i], 0, SIZE);
+        int size = board.length;
+        int[][] clone = new int[size][size];
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(board[i], 0, clone[i], 0, size);
         }
         return clone;
     }
 
-    private static int[][] mutate(int[][] candidate, int[][] initialBoard) {
-        for (int row = 0; row < SIZE; row++) {
+    private static int[][] mutate(int[][] candidate, int[][] initialBoard, SolverRandom rand) {
+        int size = candidate.length;
+        for (int row = 0; row < size; row++) {
             if (rand.nextDouble() < MUTATION_RATE) {
                 // Only mutate rows that don't contain fixed numbers from initial board
                 boolean hasFixed = false;
-                for (int col = 0; col < SIZE; col++) {
+                for (int col = 0; col < size; col++) {
                     if (initialBoard[row][col] != 0) {
                         hasFixed = true;
                         break;
@@ -217,8 +316,8 @@ public class SudokuGA {
                 }
                 if (!hasFixed) {
                     // Swap two random positions in the row
-                    int pos1 = rand.nextInt(SIZE);
-                    int pos2 = rand.nextInt(SIZE);
+                    int pos1 = rand.nextInt(size);
+                    int pos2 = rand.nextInt(size);
                     int temp = candidate[row][pos1];
                     candidate[row][pos1] = candidate[row][pos2];
                     candidate[row][pos2] = temp;
@@ -228,17 +327,18 @@ public class SudokuGA {
         return candidate;
     }
 
-    private static int[][][] crossover(int[][] parent1, int[][] parent2) {
-        int[][] child1 = new int[SIZE][SIZE];
-        int[][] child2 = new int[SIZE][SIZE];
+    private static int[][][] crossover(int[][] parent1, int[][] parent2, SolverRandom rand) {
+        int size = parent1.length;
+        int[][] child1 = new int[size][size];
+        int[][] child2 = new int[size][size];
         
-        for (int row = 0; row < SIZE; row++) {
+        for (int row = 0; row < size; row++) {
             if (rand.nextBoolean()) {
-                System.arraycopy(parent1[row], 0, child1[row], 0, SIZE);
-                System.arraycopy(parent2[row], 0, child2[row], 0, SIZE);
+                System.arraycopy(parent1[row], 0, child1[row], 0, size);
+                System.arraycopy(parent2[row], 0, child2[row], 0, size);
             } else {
-                System.arraycopy(parent2[row], 0, child1[row], 0, SIZE);
-                System.arraycopy(parent1[row], 0, child2[row], 0, SIZE);
+                System.arraycopy(parent2[row], 0, child1[row], 0, size);
+                System.arraycopy(parent1[row], 0, child2[row], 0, size);
             }
         }
         
@@ -246,21 +346,23 @@ public class SudokuGA {
     }
 
     private static int calculateFitness(int[][] candidate) {
+        int size = candidate.length;
+        int subgrid = SudokuLogicBackTracking.boxSize(size);
         int conflicts = 0;
         
         // Check rows (not needed as we maintain row validity in generation)
-        for (int row = 0; row < SIZE; row++) {
+        for (int row = 0; row < size; row++) {
             conflicts += countConflicts(getRow(candidate, row));
         }
         
         // Check columns
-        for (int col = 0; col < SIZE; col++) {
+        for (int col = 0; col < size; col++) {
             conflicts += countConflicts(getColumn(candidate, col));
         }
         
-        // Check 3x3 subgrids
-        for (int blockRow = 0; blockRow < SIZE; blockRow += SUBGRID) {
-            for (int blockCol = 0; blockCol < SIZE; blockCol += SUBGRID) {
+        // Check subgrids
+        for (int blockRow = 0; blockRow < size; blockRow += subgrid) {
+            for (int blockCol = 0; blockCol < size; blockCol += subgrid) {
                 conflicts += countConflicts(getBlock(candidate, blockRow, blockCol));
             }
         }
@@ -284,25 +386,29 @@ public class SudokuGA {
     }
 
     private static List<Integer> getRow(int[][] board, int row) {
+        int size = board.length;
         List<Integer> numbers = new ArrayList<>();
-        for (int col = 0; col < SIZE; col++) {
+        for (int col = 0; col < size; col++) {
             numbers.add(board[row][col]);
         }
         return numbers;
     }
 
     private static List<Integer> getColumn(int[][] board, int col) {
+        int size = board.length;
         List<Integer> numbers = new ArrayList<>();
-        for (int row = 0; row < SIZE; row++) {
+        for (int row = 0; row < size; row++) {
             numbers.add(board[row][col]);
         }
         return numbers;
     }
 
     private static List<Integer> getBlock(int[][] board, int blockRow, int blockCol) {
+        int size = board.length;
+        int subgrid = SudokuLogicBackTracking.boxSize(size);
         List<Integer> numbers = new ArrayList<>();
-        for (int row = blockRow; row < blockRow + SUBGRID; row++) {
-            for (int col = blockCol; col < blockCol + SUBGRID; col++) {
+        for (int row = blockRow; row < blockRow + subgrid; row++) {
+            for (int col = blockCol; col < blockCol + subgrid; col++) {
                 numbers.add(board[row][col]);
             }
         }
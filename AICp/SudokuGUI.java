@@ -3,25 +3,63 @@
 package AICp;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class SudokuGUI extends JFrame {
-    private final SudokuLogicBackTracking solver;
+    private final SudokuCore core;
     private final JTextField[][] cells;
     private final int SIZE;
     private final int SUBGRID;
     private int[][] board;
+    // Live checking: conflicts and solvability follow every edit
+    private final LiveChecker checker;
+    private final boolean[][] invalid;
+    private int invalidEntries;
+    private final JCheckBox liveCheck = new JCheckBox("Live check", true);
+    private final JLabel status = new JLabel(" ", SwingConstants.CENTER);
+    private CompletableFuture<Boolean> solvability;
+    private boolean loading; // set while updateBoard rewrites every cell
+    // Solve and Hint run here, one at a time, so a long search never blocks the event thread
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "sudoku-gui-worker");
+        t.setDaemon(true);
+        return t;
+    });
+    private JButton solveButton;
+    private JButton hintButton;
 
     public SudokuGUI() {
-        solver = new SudokuLogicBackTracking();
-        SIZE = solver.getSize();
-        SUBGRID = solver.getSubgrid();
+        this(3);
+    }
+
+    /**
+     * @param subgrid box side length: 3 for the classic 9x9 board, 4 for 16x16, 5 for 25x25
+     */
+    public SudokuGUI(int subgrid) {
+        PuzzlePool puzzlePool = new PuzzlePool(PuzzlePool.DEFAULT_CAPACITY, subgrid);
+        core = new SudokuCore(subgrid, puzzlePool);
+        SIZE = core.getSize();
+        SUBGRID = core.getSubgrid();
         cells = new JTextField[SIZE][SIZE];
         board = new int[SIZE][SIZE];
+        checker = new LiveChecker(SIZE);
+        invalid = new boolean[SIZE][SIZE];
+        puzzlePool.persistOnShutdown(new File(System.getProperty("user.home"),
+                SIZE == 9 ? ".sudoku-puzzle-pool" : ".sudoku-puzzle-pool-" + SIZE));
+        puzzlePool.start();
 
         setTitle("Sudoku Solver & Generator");
-        setSize(700, 700);
+        setSize(Math.max(700, SIZE * 40), Math.max(700, SIZE * 40));
         setLayout(new BorderLayout());
+        status.setFont(new Font("Arial", Font.PLAIN, 16));
+        add(status, BorderLayout.NORTH);
         createBoard();
         addButtons();
         setDefaultCloseOperation(EXIT_ON_CLOSE);
@@ -34,9 +72,31 @@ public class SudokuGUI extends JFrame {
         
         for (int i = 0; i < SIZE; i++) {
             for (int j = 0; j < SIZE; j++) {
-                cells[i][j] = new JTextField();
+                final int row = i, col = j;
+                cells[i][j] = new JTextField() {
+                    @Override
+                    public String getToolTipText(MouseEvent e) {
+                        return candidatesText(row, col);
+                    }
+                };
+                cells[i][j].setToolTipText(""); // registers the cell for tooltips
+                cells[i][j].getDocument().addDocumentListener(new DocumentListener() {
+                    @Override
+                    public void insertUpdate(DocumentEvent e) {
+                        cellEdited(row, col);
+                    }
+
+                    @Override
+                    public void removeUpdate(DocumentEvent e) {
+                        cellEdited(row, col);
+                    }
+
+                    @Override
+                    public void changedUpdate(DocumentEvent e) {
+                    }
+                });
                 cells[i][j].setHorizontalAlignment(JTextField.CENTER);
-                cells[i][j].setFont(new Font("Arial", Font.BOLD, 20));
+                cells[i][j].setFont(new Font("Arial", Font.BOLD, SIZE > 9 ? 14 : 20));
                 
                 if ((i / SUBGRID + j / SUBGRID) % 2 == 0) {
                     cells[i][j].setBackground(new Color(173, 216, 230));
@@ -56,23 +116,37 @@ public class SudokuGUI extends JFrame {
         buttonPanel.setBackground(Color.LIGHT_GRAY);
 
         addButton(buttonPanel, "Generate", e -> generatePuzzle());
-        addButton(buttonPanel, "Solve", e -> solveSudoku());
+        solveButton = addButton(buttonPanel, "Solve", e -> solveSudoku());
         addButton(buttonPanel, "Validate", e -> validateSolution());
-        addButton(buttonPanel, "Hint", e -> provideHint());
+        hintButton = addButton(buttonPanel, "Hint", e -> provideHint());
+        addButton(buttonPanel, "Trace", e -> traceSearch());
+        liveCheck.setFont(new Font("Arial", Font.BOLD, 16));
+        liveCheck.setOpaque(false);
+        liveCheck.addActionListener(e -> refreshLiveCheck());
+        buttonPanel.add(liveCheck);
 
         add(buttonPanel, BorderLayout.SOUTH);
     }
 
-    private void addButton(JPanel panel, String text, java.awt.event.ActionListener listener) {
+    private JButton addButton(JPanel panel, String text, java.awt.event.ActionListener listener) {
         JButton button = new JButton(text);
         button.setFont(new Font("Arial", Font.BOLD, 16));
         button.setPreferredSize(new Dimension(150, 50));
         button.addActionListener(listener);
         panel.add(button);
+        return button;
+    }
+
+    /**
+     * Disables Solve and Hint while one of them runs on the worker.
+     */
+    private void setWorking(boolean working) {
+        solveButton.setEnabled(!working);
+        hintButton.setEnabled(!working);
     }
 
     private void solveSudoku() {
-        String[] options = {"Backtracking", "Constraint Programming","MRV","Simulated Anneling","Genetic Algo"};
+        String[] options = SolverRegistry.names();
         int choice = JOptionPane.showOptionDialog(
             this,
             "Select Solving Method",
@@ -83,35 +157,50 @@ public class SudokuGUI extends JFrame {
             options,
             options[0]
         );
+        if (choice < 0) return; // dialog closed
 
         readBoard();
-        boolean solved = false;
-
-        if (choice == 0) {
-            // Backtracking method
-            solved = solver.solve(board);
-        } else if (choice == 1) {
-            // Constraint Programming method
-            solved = SudokuSolverCP.solveSudokuConstraint(board);
-        } else if(choice==2){
-            //Minimum Remaining Huristic 
-            solved = SudokuSolverMRV.solve(board);
-        } else if(choice == 3){
-            solved = SimulatedAnnealingSudoku.solve(board);
-        } else if(choice==4){
-            solved = SudokuGA.solve(board);
-        }
+        String solver = options[choice];
+        int[][] copy = new int[SIZE][];
+        for (int i = 0; i < SIZE; i++) copy[i] = board[i].clone();
+        setWorking(true);
+        CompletableFuture.supplyAsync(() -> core.solve(solver, copy), worker)
+                .whenComplete((solved, error) -> SwingUtilities.invokeLater(() -> {
+                    setWorking(false);
+                    if (error != null) {
+                        JOptionPane.showMessageDialog(this, "Solver failed: " + error.getCause());
+                    } else if (solved) {
+                        board = copy;
+                        updateBoard();
+                        JOptionPane.showMessageDialog(this, "Solved!");
+                    } else {
+                        JOptionPane.showMessageDialog(this, "No solution exists.");
+                    }
+                }));
+    }
 
-        if (solved) {
-            updateBoard();
-            JOptionPane.showMessageDialog(this, "Solved!");
-        } else {
-            JOptionPane.showMessageDialog(this, "No solution exists.");
-        }
+    /**
+     * Solves a copy of the board with tracing on and opens the replay.
+     */
+    private void traceSearch() {
+        String[] options = {"MRV", "Backtracking"};
+        int choice = JOptionPane.showOptionDialog(this, "Trace which solver?", "Search Trace",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
+        if (choice < 0) return;
+
+        readBoard();
+        int[][] copy = new int[SIZE][];
+        for (int i = 0; i < SIZE; i++) copy[i] = board[i].clone();
+        SearchTrace trace = new SearchTrace(1 << 20);
+        if (choice == 0) SudokuSolverMRV.solve(copy, trace);
+        else new SudokuLogicBackTracking(SUBGRID).solve(copy, trace);
+        new TraceReplayDialog(this, trace).setVisible(true);
     }
 
     private void generatePuzzle() {
-        board = solver.generatePuzzle(getDifficulty());
+        int difficulty = getDifficulty();
+        if (difficulty < 0) return; // dialog closed
+        board = core.generate(difficulty);
         updateBoard();
     }
 
@@ -134,27 +223,128 @@ public class SudokuGUI extends JFrame {
     }
 
     private void updateBoard() {
+        loading = true;
         for (int i = 0; i < SIZE; i++) {
             for (int j = 0; j < SIZE; j++) {
                 cells[i][j].setText(board[i][j] == 0 ? "" : String.valueOf(board[i][j]));
-                cells[i][j].setBackground((i / SUBGRID + j / SUBGRID) % 2 == 0 ? 
-                    new Color(173, 216, 230) : Color.WHITE);
+                cells[i][j].setBackground(background(i, j));
             }
         }
+        loading = false;
+        refreshLiveCheck();
+    }
+
+    private Color background(int i, int j) {
+        return (i / SUBGRID + j / SUBGRID) % 2 == 0 ? new Color(173, 216, 230) : Color.WHITE;
+    }
+
+    /**
+     * Digit in a cell's text, 0 if empty, -1 if not a digit of this board.
+     */
+    private int parseCell(int i, int j) {
+        String text = cells[i][j].getText().trim();
+        if (text.isEmpty()) return 0;
+        try {
+            int value = Integer.parseInt(text);
+            return value >= 1 && value <= SIZE ? value : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Updates the checker with one edited cell, repaints only the cells whose
+     * conflict state it reports as changed and restarts the solvability check.
+     */
+    private void cellEdited(int i, int j) {
+        if (loading || !liveCheck.isSelected()) return;
+        int value = parseCell(i, j);
+        if (invalid[i][j] != (value < 0)) {
+            invalid[i][j] = value < 0;
+            invalidEntries += value < 0 ? 1 : -1;
+        }
+        for (int cell : checker.set(i, j, Math.max(value, 0))) {
+            paintCell(cell / SIZE, cell % SIZE);
+        }
+        checkSolvable();
+    }
+
+    /**
+     * Reloads the checker from every cell, after the whole board changed or
+     * live checking was switched on or off.
+     */
+    private void refreshLiveCheck() {
+        if (!liveCheck.isSelected()) {
+            solvability = null;
+            status.setText(" ");
+            for (int i = 0; i < SIZE; i++) {
+                for (int j = 0; j < SIZE; j++) {
+                    cells[i][j].setBackground(background(i, j));
+                }
+            }
+            return;
+        }
+        int[][] values = new int[SIZE][SIZE];
+        invalidEntries = 0;
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                int value = parseCell(i, j);
+                invalid[i][j] = value < 0;
+                if (value < 0) invalidEntries++;
+                values[i][j] = Math.max(value, 0);
+            }
+        }
+        checker.load(values);
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                paintCell(i, j);
+            }
+        }
+        checkSolvable();
+    }
+
+    private void paintCell(int i, int j) {
+        cells[i][j].setBackground(invalid[i][j] || checker.isConflict(i, j) ? Color.RED : background(i, j));
+    }
+
+    private void checkSolvable() {
+        // Always restart, so a check still running for an older board is cancelled
+        CompletableFuture<Boolean> check = checker.checkSolvable();
+        solvability = check;
+        if (invalidEntries > 0) {
+            status.setText("Entries must be digits from 1 to " + SIZE);
+        } else if (checker.hasConflicts()) {
+            status.setText("Conflicting entries");
+        } else {
+            status.setText("Checking...");
+            check.whenComplete((solvable, error) -> SwingUtilities.invokeLater(() -> {
+                if (check != solvability || error != null) return; // superseded by a later edit
+                status.setText(solvable ? "Solvable" : "No solution from here");
+            }));
+        }
+    }
+
+    private String candidatesText(int i, int j) {
+        if (!liveCheck.isSelected() || checker.get(i, j) != 0) return null;
+        StringBuilder sb = new StringBuilder("Candidates:");
+        for (long rest = checker.candidates(i, j); rest != 0; rest &= rest - 1) {
+            sb.append(' ').append(Long.numberOfTrailingZeros(rest) + 1);
+        }
+        return sb.toString();
     }
 
     private void validateSolution() {
         boolean valid = true;
         readBoard();
+        boolean[][] conflicts = core.conflicts(board);
 
         for (int i = 0; i < SIZE; i++) {
             for (int j = 0; j < SIZE; j++) {
-                if (board[i][j] != 0 && !solver.isValid(board, i, j, board[i][j])) {
+                if (conflicts[i][j]) {
                     cells[i][j].setBackground(Color.RED);
                     valid = false;
                 } else {
-                    cells[i][j].setBackground((i / SUBGRID + j / SUBGRID) % 2 == 0 ? 
-                        new Color(173, 216, 230) : Color.WHITE);
+                    cells[i][j].setBackground(background(i, j));
                 }
             }
         }
@@ -165,27 +355,25 @@ public class SudokuGUI extends JFrame {
 
     private void provideHint() {
         readBoard();
-        for (int row = 0; row < SIZE; row++) {
-            for (int col = 0; col < SIZE; col++) {
-                if (board[row][col] == 0) {
-                    for (int num = 1; num <= SIZE; num++) {
-                        if (solver.isValid(board, row, col, num)) {
-                            board[row][col] = num;
-                            if (solver.solve(board)) {
-                                cells[row][col].setText(String.valueOf(num));
-                                cells[row][col].setBackground(Color.YELLOW);
-                                return;
-                            }
-                            board[row][col] = 0;
-                        }
+        int[][] copy = new int[SIZE][];
+        for (int i = 0; i < SIZE; i++) copy[i] = board[i].clone();
+        setWorking(true);
+        CompletableFuture.supplyAsync(() -> core.hint(copy), worker)
+                .whenComplete((hint, error) -> SwingUtilities.invokeLater(() -> {
+                    setWorking(false);
+                    if (error != null || hint == null) {
+                        JOptionPane.showMessageDialog(this, "No hints available.");
+                        return;
                     }
-                }
-            }
-        }
-        JOptionPane.showMessageDialog(this, "No hints available.");
+                    if (!cells[hint.row][hint.col].getText().isEmpty()) return; // filled in while solving
+                    cells[hint.row][hint.col].setText(String.valueOf(hint.value));
+                    cells[hint.row][hint.col].setBackground(Color.YELLOW);
+                }));
     }
 
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(SudokuGUI::new);
+        // Optional argument: box size, e.g. 4 for a 16x16 board
+        int subgrid = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        SwingUtilities.invokeLater(() -> new SudokuGUI(subgrid));
     }
 }
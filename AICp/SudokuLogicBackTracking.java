@@ -1,19 +1,47 @@
 // SudokuLogic.java
 package AICp;
 
-import java.util.Random;
-
 public class SudokuLogicBackTracking {
-    private static final int SIZE = 9;
-    private static final int SUBGRID = 3;
+    private static final int DEFAULT_SUBGRID = 3;
+    static final int MAX_SIZE = 36; // digit sets are kept in a long
+    private final int SIZE;
+    private final int SUBGRID;
+
+    public SudokuLogicBackTracking() {
+        this(DEFAULT_SUBGRID);
+    }
+
+    /**
+     * @param subgrid box side length: 3 for 9x9, 4 for 16x16, 5 for 25x25, 6 for 36x36
+     */
+    public SudokuLogicBackTracking(int subgrid) {
+        if (subgrid < 2 || subgrid * subgrid > MAX_SIZE) {
+            throw new IllegalArgumentException("Unsupported box size: " + subgrid);
+        }
+        SIZE = subgrid * subgrid;
+        SUBGRID = subgrid;
+    }
+
+    /**
+     * Box side length for a board of the given size.
+     */
+    static int boxSize(int size) {
+        int box = (int) Math.round(Math.sqrt(size));
+        if (box * box != size || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Unsupported board size: " + size);
+        }
+        return box;
+    }
 
     public boolean isValid(int[][] board, int row, int col, int num) {
-        for (int i = 0; i < SIZE; i++) {
+        int size = board.length;
+        int subgrid = boxSize(size);
+        for (int i = 0; i < size; i++) {
             if (board[row][i] == num && i != col || // Check row
                 board[i][col] == num && i != row || // Check column
-                board[row / SUBGRID * SUBGRID + i / SUBGRID][col / SUBGRID * SUBGRID + i % SUBGRID] == num &&
-                (row / SUBGRID * SUBGRID + i / SUBGRID != row ||
-                        col / SUBGRID * SUBGRID + i % SUBGRID != col)) { // Check subgrid
+                board[row / subgrid * subgrid + i / subgrid][col / subgrid * subgrid + i % subgrid] == num &&
+                (row / subgrid * subgrid + i / subgrid != row ||
+                        col / subgrid * subgrid + i % subgrid != col)) { // Check subgrid
                 return false;
             }
         }
@@ -21,33 +49,159 @@ public class SudokuLogicBackTracking {
     }
 
     public boolean solve(int[][] board) {
-        for (int row = 0; row < SIZE; row++) {
-            for (int col = 0; col < SIZE; col++) {
-                if (board[row][col] == 0) {
-                    for (int num = 1; num <= SIZE; num++) {
-                        if (isValid(board, row, col, num)) {
-                            board[row][col] = num;
-                            if (solve(board)) return true;
-                            board[row][col] = 0;
-                        }
+        return solve(board, ConstraintModel.classic(board.length), null);
+    }
+
+    /**
+     * Same as {@link #solve(int[][])}, recording every placement and undo
+     * into trace when it is not null.
+     */
+    public boolean solve(int[][] board, SearchTrace trace) {
+        return solve(board, ConstraintModel.classic(board.length), trace);
+    }
+
+    /**
+     * Solves the board in-place under the rules of a variant.
+     */
+    public boolean solve(int[][] board, ConstraintModel model) {
+        return solve(board, model, null);
+    }
+
+    public boolean solve(int[][] board, ConstraintModel model, SearchTrace trace) {
+        return solve(board, model, trace, null);
+    }
+
+    /**
+     * Solves the board in-place, recording dead ends in nogoods so that later
+     * solves given the same table skip them. With a null table none are
+     * kept: a depth-first solve never reaches the same board twice, so
+     * nogoods only pay off across solves.
+     */
+    public boolean solve(int[][] board, ConstraintModel model, SearchTrace trace, NogoodTable nogoods) {
+        SolverEvents.Solve event = SolverEvents.begin("Backtracking", board);
+        Search search = new Search(board, model, trace, nogoods);
+        if (trace != null) trace.begin(board);
+        boolean solved = search.run() == SteppedSearch.State.SOLVED;
+        if (trace != null) trace.end(board);
+        SolverEvents.end(event, solved);
+        return solved;
+    }
+
+    /**
+     * A backtracking solve of board under model that runs a slice at a time;
+     * see {@link SteppedSearch}.
+     */
+    public static SteppedSearch search(int[][] board, ConstraintModel model) {
+        return search(board, model, null);
+    }
+
+    /**
+     * Same as {@link #search(int[][], ConstraintModel)}, sharing the
+     * caller's nogood table when it is not null.
+     */
+    public static SteppedSearch search(int[][] board, ConstraintModel model, NogoodTable nogoods) {
+        return new Search(board, model, null, nogoods);
+    }
+
+    /**
+     * Fills cells in order. Frame d holds the cell filled at depth d, the
+     * candidates not yet tried there and the board's Zobrist hash before it
+     * was filled. Boards whose subtree was searched without success go into
+     * the caller's nogood table, if any, and are skipped when a later solve
+     * reaches them; a cell with no candidates is cheaper to rediscover than
+     * to store.
+     */
+    private static final class Search extends SteppedSearch {
+        private final SearchTrace trace;
+        // Bit d-1 of used[u] is set when digit d is already placed in unit u
+        private final long[] used;
+        private final int[] cell;
+        private final long[] untried;
+        private final long[] hash;
+        private int depth;
+        private boolean entering = true; // no cell chosen at depth yet
+
+        Search(int[][] board, ConstraintModel model, SearchTrace trace, NogoodTable nogoods) {
+            super(board, model, "Backtracking", nogoods);
+            this.trace = trace;
+            used = new long[model.units.length];
+            for (int c = 0; c < grid.length; c++) {
+                if (grid[c] != 0) {
+                    for (int u : model.unitsOf[c]) used[u] |= 1L << (grid[c] - 1);
+                }
+            }
+            int frames = grid.length + 1;
+            cell = new int[frames];
+            untried = new long[frames];
+            hash = new long[frames];
+            hash[0] = model.hash(grid);
+            if (!model.consistent(grid)) state = State.UNSOLVABLE; // clashing givens
+        }
+
+        @Override
+        State search(long budget) {
+            while (true) {
+                if (entering) {
+                    if (budget-- == 0) return State.SUSPENDED;
+                    nodes.tick();
+                    int c = depth == 0 ? 0 : cell[depth - 1] + 1;
+                    while (c < grid.length && grid[c] != 0) c++;
+                    if (c == grid.length) return State.SOLVED;
+                    long free = model.candidates(grid, used, c);
+                    if (free == 0 || isNogood(hash[depth])) {
+                        if (--depth < 0) return State.UNSOLVABLE; // back to the parent's next value
+                    } else {
+                        cell[depth] = c;
+                        untried[depth] = free;
                     }
-                    return false;
+                    entering = false;
+                }
+                int c = cell[depth];
+                if (grid[c] != 0) {
+                    if (trace != null) trace.undo(c, grid[c]);
+                    long placed = 1L << (grid[c] - 1);
+                    for (int u : model.unitsOf[c]) used[u] ^= placed;
+                    grid[c] = 0;
                 }
+                if (untried[depth] == 0) {
+                    addNogood(hash[depth]);
+                    if (--depth < 0) return State.UNSOLVABLE;
+                    continue;
+                }
+                long bit = untried[depth] & -untried[depth];
+                untried[depth] ^= bit;
+                grid[c] = Long.numberOfTrailingZeros(bit) + 1;
+                for (int u : model.unitsOf[c]) used[u] |= bit;
+                if (trace != null) trace.place(c, grid[c]);
+                hash[depth + 1] = hash[depth] ^ model.key(c, grid[c]);
+                depth++;
+                entering = true;
             }
         }
-        return true;
+    }
+
+    static long allDigits(int size) {
+        return (1L << size) - 1;
     }
 
     public int[][] generatePuzzle(int difficulty) {
+        return generatePuzzle(difficulty, SolverRandom.unseeded());
+    }
+
+    /**
+     * Repeatable generation: the same seed gives the same puzzle.
+     */
+    public int[][] generatePuzzle(int difficulty, SolverRandom rand) {
         int[][] fullBoard = new int[SIZE][SIZE];
-        fillDiagonal(fullBoard);
-        solve(fullBoard);
+        fillDiagonal(fullBoard, rand);
+        // Clause learning keeps the fill fast on 25x25 and 36x36, where MRV can stall
+        SudokuSolverSAT.solve(fullBoard);
 
         int[][] puzzle = copyBoard(fullBoard);
         int removeCount = difficulty == 0 ? 36 : difficulty == 1 ? 45 : 54;
-        // easy = 45 ; medium = 36 ; hard = 27 
+        // easy = 45 ; medium = 36 ; hard = 27 (per 81 cells, scaled for larger boards)
+        removeCount = Math.round(removeCount * SIZE * SIZE / 81f);
 
-        Random rand = new Random();
         while (removeCount > 0) {
             int row = rand.nextInt(SIZE);
             int col = rand.nextInt(SIZE);
@@ -59,19 +213,18 @@ public class SudokuLogicBackTracking {
         return puzzle;
     }
 
-    private void fillDiagonal(int[][] board) {
+    private void fillDiagonal(int[][] board, SolverRandom rand) {
         for (int i = 0; i < SIZE; i += SUBGRID) {
-            fillSubGrid(board, i, i);
+            fillSubGrid(board, i, i, rand);
         }
     }
 
-    private void fillSubGrid(int[][] board, int row, int col) {
-        Random rand = new Random();
+    private void fillSubGrid(int[][] board, int row, int col, SolverRandom rand) {
         int[] numbers = new int[SIZE];
         for (int i = 0; i < SIZE; i++) {
             numbers[i] = i + 1;
         }
-        shuffleArray(numbers);
+        rand.shuffle(numbers);
         for (int r = 0; r < SUBGRID; r++) {
             for (int c = 0; c < SUBGRID; c++) {
                 board[row + r][col + c] = numbers[r * SUBGRID + c];
@@ -79,16 +232,6 @@ public class SudokuLogicBackTracking {
         }
     }
 
-    private void shuffleArray(int[] array) {
-        Random rand = new Random();
-        for (int i = array.length - 1; i > 0; i--) {
-            int j = rand.nextInt(i + 1);
-            int temp = array[i];
-            array[i] = array[j];
-            array[j] = temp;
-        }
-    }
-
     private int[][] copyBoard(int[][] original) {
         int[][] copy = new int[SIZE][SIZE];
         for (int i = 0; i < SIZE; i++) {
@@ -104,4 +247,4 @@ public class SudokuLogicBackTracking {
     public int getSubgrid() {
         return SUBGRID;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,455 @@
+package AICp;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Rates a 9x9 puzzle by solving it the way a person would: always applying the
+ * simplest technique that still makes progress. Candidates are kept as 9-bit
+ * masks (bit d-1 set means digit d is still possible), so each technique is a
+ * handful of ORs and popcounts per unit.
+ */
+public class SudokuRater {
+    private static final int SIZE = 9;
+    private static final int CELLS = SIZE * SIZE;
+    private static final int ALL = (1 << SIZE) - 1;
+
+    public enum Technique {
+        NAKED_SINGLE(1),
+        HIDDEN_SINGLE(2),
+        LOCKED_CANDIDATES(5),
+        NAKED_PAIR(8),
+        HIDDEN_PAIR(10),
+        NAKED_TRIPLE(14),
+        HIDDEN_TRIPLE(16),
+        X_WING(20),
+        SWORDFISH(28),
+        TRIAL_AND_ERROR(100); // logic alone got stuck
+
+        public final int weight;
+
+        Technique(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    public static class Rating {
+        public final Technique hardest;
+        public final int score;
+        public final boolean valid;
+
+        Rating(Technique hardest, int score, boolean valid) {
+            this.hardest = hardest;
+            this.score = score;
+            this.valid = valid;
+        }
+
+        @Override
+        public String toString() {
+            return valid ? hardest + " (" + score + ")" : "INVALID";
+        }
+    }
+
+    // Unit tables: rows 0-8, columns 9-17, boxes 18-26
+    static final int[][] UNITS = new int[27][SIZE];
+    static final int[][] PEERS = new int[CELLS][20];
+    // Box/line intersections for locked candidates: {intersection, rest of box, rest of line}
+    private static final int[][][] INTERSECTIONS = new int[54][][];
+
+    static {
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                UNITS[i][j] = i * SIZE + j;
+                UNITS[SIZE + i][j] = j * SIZE + i;
+                UNITS[2 * SIZE + i][j] = ((i / 3) * 3 + j / 3) * SIZE + (i % 3) * 3 + j % 3;
+            }
+        }
+        for (int cell = 0; cell < CELLS; cell++) {
+            int r = cell / SIZE, c = cell % SIZE, n = 0;
+            for (int other = 0; other < CELLS; other++) {
+                int r2 = other / SIZE, c2 = other % SIZE;
+                if (other != cell && (r == r2 || c == c2 || (r / 3 == r2 / 3 && c / 3 == c2 / 3))) {
+                    PEERS[cell][n++] = other;
+                }
+            }
+        }
+        int k = 0;
+        for (int box = 0; box < SIZE; box++) {
+            int[] boxCells = UNITS[2 * SIZE + box];
+            for (int line = 0; line < 2 * SIZE; line++) {
+                int[] lineCells = UNITS[line];
+                int shared = 0;
+                for (int cell : boxCells) {
+                    if (contains(lineCells, cell)) shared++;
+                }
+                if (shared != 3) continue;
+                int[] inter = new int[3], boxRest = new int[6], lineRest = new int[6];
+                int a = 0, b = 0, c = 0;
+                for (int cell : boxCells) {
+                    if (contains(lineCells, cell)) inter[a++] = cell;
+                    else boxRest[b++] = cell;
+                }
+                for (int cell : lineCells) {
+                    if (!contains(boxCells, cell)) lineRest[c++] = cell;
+                }
+                INTERSECTIONS[k++] = new int[][]{inter, boxRest, lineRest};
+            }
+        }
+    }
+
+    private static boolean contains(int[] cells, int cell) {
+        for (int c : cells) {
+            if (c == cell) return true;
+        }
+        return false;
+    }
+
+    private final int[] values = new int[CELLS];
+    private final int[] candidates = new int[CELLS];
+    private int unsolved;
+    private boolean contradiction;
+    private int lastPlaced = -1;
+
+    private SudokuRater(int[][] board) {
+        for (int cell = 0; cell < CELLS; cell++) {
+            candidates[cell] = ALL;
+        }
+        unsolved = CELLS;
+        for (int cell = 0; cell < CELLS; cell++) {
+            int v = board[cell / SIZE][cell % SIZE];
+            if (v != 0) {
+                if ((candidates[cell] & (1 << (v - 1))) == 0) contradiction = true;
+                place(cell, v);
+            }
+        }
+    }
+
+    public static Rating rate(int[][] board) {
+        SudokuRater rater = new SudokuRater(board);
+        Technique hardest = Technique.NAKED_SINGLE;
+        int score = 0;
+        while (rater.unsolved > 0 && !rater.contradiction) {
+            Technique used = rater.step();
+            if (used == null) {
+                return new Rating(Technique.TRIAL_AND_ERROR, score + Technique.TRIAL_AND_ERROR.weight, true);
+            }
+            score += used.weight;
+            if (used.ordinal() > hardest.ordinal()) hardest = used;
+        }
+        return rater.contradiction ? new Rating(null, score, false) : new Rating(hardest, score, true);
+    }
+
+    /**
+     * Finds the next digit a person could place, using the simplest chain of
+     * techniques that reaches it. Returns {cell, value, technique ordinal}, or
+     * null when logic alone cannot place anything.
+     */
+    static int[] nextPlacement(int[][] board) {
+        SudokuRater rater = new SudokuRater(board);
+        rater.lastPlaced = -1;
+        Technique hardest = Technique.NAKED_SINGLE;
+        while (rater.unsolved > 0 && !rater.contradiction) {
+            Technique used = rater.step();
+            if (used == null) return null;
+            if (used.ordinal() > hardest.ordinal()) hardest = used;
+            if (rater.lastPlaced >= 0 && !rater.contradiction) {
+                return new int[]{rater.lastPlaced, rater.values[rater.lastPlaced], hardest.ordinal()};
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Rates many puzzles in parallel. The rater keeps no shared mutable state,
+     * so the only coordination is the fork/join split of the list.
+     */
+    public static List<Rating> rateAll(List<int[][]> boards) {
+        return boards.parallelStream().map(SudokuRater::rate).collect(Collectors.toList());
+    }
+
+    /**
+     * Applies the simplest technique that makes progress and returns it, or
+     * null if none of the techniques apply.
+     */
+    private Technique step() {
+        if (nakedSingles()) return Technique.NAKED_SINGLE;
+        if (hiddenSingles()) return Technique.HIDDEN_SINGLE;
+        if (lockedCandidates()) return Technique.LOCKED_CANDIDATES;
+        if (nakedSubsets(2)) return Technique.NAKED_PAIR;
+        if (hiddenSubsets(2)) return Technique.HIDDEN_PAIR;
+        if (nakedSubsets(3)) return Technique.NAKED_TRIPLE;
+        if (hiddenSubsets(3)) return Technique.HIDDEN_TRIPLE;
+        if (fish(2)) return Technique.X_WING;
+        if (fish(3)) return Technique.SWORDFISH;
+        return null;
+    }
+
+    private void place(int cell, int value) {
+        int bit = 1 << (value - 1);
+        values[cell] = value;
+        candidates[cell] = 0;
+        lastPlaced = cell;
+        unsolved--;
+        for (int peer : PEERS[cell]) {
+            if (values[peer] == value) contradiction = true;
+            candidates[peer] &= ~bit;
+        }
+    }
+
+    private boolean nakedSingles() {
+        for (int cell = 0; cell < CELLS; cell++) {
+            if (values[cell] != 0) continue;
+            int cand = candidates[cell];
+            if (cand == 0) {
+                contradiction = true;
+                return true;
+            }
+            if ((cand & (cand - 1)) == 0) {
+                // One digit per step, like hidden singles, so every placement scores its technique once
+                place(cell, Integer.numberOfTrailingZeros(cand) + 1);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hiddenSingles() {
+        for (int[] unit : UNITS) {
+            int once = 0, twice = 0, placed = 0;
+            for (int cell : unit) {
+                int cand = candidates[cell];
+                twice |= once & cand;
+                once |= cand;
+                if (values[cell] != 0) placed |= 1 << (values[cell] - 1);
+            }
+            if ((once | placed) != ALL) {
+                contradiction = true; // some digit has nowhere to go
+                return true;
+            }
+            int singles = once & ~twice;
+            if (singles == 0) continue;
+            int bit = singles & -singles;
+            for (int cell : unit) {
+                if ((candidates[cell] & bit) != 0) {
+                    place(cell, Integer.numberOfTrailingZeros(bit) + 1);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean lockedCandidates() {
+        boolean progress = false;
+        for (int[][] x : INTERSECTIONS) {
+            int inter = orCandidates(x[0]);
+            int boxRest = orCandidates(x[1]);
+            int lineRest = orCandidates(x[2]);
+            int pointing = inter & ~boxRest & lineRest; // box digit confined to the line
+            int claiming = inter & ~lineRest & boxRest; // line digit confined to the box
+            if (pointing != 0) progress |= eliminate(x[2], pointing);
+            if (claiming != 0) progress |= eliminate(x[1], claiming);
+            if (progress) return true;
+        }
+        return false;
+    }
+
+    private boolean nakedSubsets(int k) {
+        int[] open = new int[SIZE];
+        for (int[] unit : UNITS) {
+            int n = 0;
+            for (int cell : unit) {
+                int count = Integer.bitCount(candidates[cell]);
+                if (count >= 2 && count <= k) open[n++] = cell;
+            }
+            if (n < k) continue;
+            for (int combo = (1 << k) - 1; combo < (1 << n); combo = nextCombination(combo)) {
+                int union = 0, members = 0;
+                for (int bits = combo; bits != 0; bits &= bits - 1) {
+                    int cell = open[Integer.numberOfTrailingZeros(bits)];
+                    union |= candidates[cell];
+                }
+                if (Integer.bitCount(union) != k) continue;
+                for (int bits = combo; bits != 0; bits &= bits - 1) {
+                    members |= 1 << Integer.numberOfTrailingZeros(bits);
+                }
+                boolean progress = false;
+                for (int cell : unit) {
+                    if (values[cell] == 0 && !isMember(open, n, members, cell) && (candidates[cell] & union) != 0) {
+                        candidates[cell] &= ~union;
+                        progress = true;
+                    }
+                }
+                if (progress) return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isMember(int[] open, int n, int members, int cell) {
+        for (int i = 0; i < n; i++) {
+            if ((members & (1 << i)) != 0 && open[i] == cell) return true;
+        }
+        return false;
+    }
+
+    private boolean hiddenSubsets(int k) {
+        int[] positions = new int[SIZE];
+        int[] digits = new int[SIZE];
+        for (int[] unit : UNITS) {
+            int n = 0;
+            for (int d = 0; d < SIZE; d++) {
+                int pos = 0;
+                for (int i = 0; i < SIZE; i++) {
+                    if ((candidates[unit[i]] & (1 << d)) != 0) pos |= 1 << i;
+                }
+                int count = Integer.bitCount(pos);
+                if (count >= 2 && count <= k) {
+                    digits[n] = d;
+                    positions[n++] = pos;
+                }
+            }
+            if (n < k) continue;
+            for (int combo = (1 << k) - 1; combo < (1 << n); combo = nextCombination(combo)) {
+                int cells = 0, digitMask = 0;
+                for (int bits = combo; bits != 0; bits &= bits - 1) {
+                    int i = Integer.numberOfTrailingZeros(bits);
+                    cells |= positions[i];
+                    digitMask |= 1 << digits[i];
+                }
+                if (Integer.bitCount(cells) != k) continue;
+                boolean progress = false;
+                for (int bits = cells; bits != 0; bits &= bits - 1) {
+                    int cell = unit[Integer.numberOfTrailingZeros(bits)];
+                    if ((candidates[cell] & ~digitMask) != 0) {
+                        candidates[cell] &= digitMask;
+                        progress = true;
+                    }
+                }
+                if (progress) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Basic fish of size k (X-Wing for 2, Swordfish for 3), with rows as base
+     * sets and then columns.
+     */
+    private boolean fish(int k) {
+        int[] base = new int[SIZE];
+        int[] lines = new int[SIZE];
+        for (int d = 0; d < SIZE; d++) {
+            int bit = 1 << d;
+            for (int orientation = 0; orientation < 2; orientation++) {
+                int n = 0;
+                for (int line = 0; line < SIZE; line++) {
+                    int pos = 0;
+                    for (int i = 0; i < SIZE; i++) {
+                        int cell = orientation == 0 ? line * SIZE + i : i * SIZE + line;
+                        if ((candidates[cell] & bit) != 0) pos |= 1 << i;
+                    }
+                    int count = Integer.bitCount(pos);
+                    if (count >= 2 && count <= k) {
+                        lines[n] = line;
+                        base[n++] = pos;
+                    }
+                }
+                if (n < k) continue;
+                for (int combo = (1 << k) - 1; combo < (1 << n); combo = nextCombination(combo)) {
+                    int cover = 0, baseLines = 0;
+                    for (int bits = combo; bits != 0; bits &= bits - 1) {
+                        int i = Integer.numberOfTrailingZeros(bits);
+                        cover |= base[i];
+                        baseLines |= 1 << lines[i];
+                    }
+                    if (Integer.bitCount(cover) != k) continue;
+                    boolean progress = false;
+                    for (int covers = cover; covers != 0; covers &= covers - 1) {
+                        int i = Integer.numberOfTrailingZeros(covers);
+                        for (int line = 0; line < SIZE; line++) {
+                            if ((baseLines & (1 << line)) != 0) continue;
+                            int cell = orientation == 0 ? line * SIZE + i : i * SIZE + line;
+                            if ((candidates[cell] & bit) != 0) {
+                                candidates[cell] &= ~bit;
+                                progress = true;
+                            }
+                        }
+                    }
+                    if (progress) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int orCandidates(int[] cells) {
+        int mask = 0;
+        for (int cell : cells) {
+            mask |= candidates[cell];
+        }
+        return mask;
+    }
+
+    private boolean eliminate(int[] cells, int mask) {
+        boolean progress = false;
+        for (int cell : cells) {
+            if ((candidates[cell] & mask) != 0) {
+                candidates[cell] &= ~mask;
+                progress = true;
+            }
+        }
+        return progress;
+    }
+
+    // Next bit pattern with the same popcount (Gosper's hack)
+    private static int nextCombination(int x) {
+        int c = x & -x;
+        int r = x + c;
+        return (((r ^ x) >>> 2) / c) | r;
+    }
+
+    /**
+     * Batch mode: reads 81-character puzzles (one per line, '0' or '.' for
+     * blanks) and prints "puzzle hardest score" for each. Input is streamed
+     * and rated a batch at a time, so memory stays flat however long it is.
+     */
+    public static void main(String[] args) throws IOException {
+        final int batch = 8192;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                args.length > 0 ? new FileInputStream(args[0]) : System.in, StandardCharsets.US_ASCII), 1 << 16)) {
+            PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII)));
+            List<String> lines = new ArrayList<>(batch);
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.length() != CELLS) continue;
+                lines.add(line);
+                if (lines.size() == batch) print(lines, out);
+            }
+            print(lines, out);
+            out.flush();
+        }
+    }
+
+    private static void print(List<String> lines, PrintWriter out) {
+        List<Rating> ratings = rateAll(lines.stream().map(SudokuRater::parse).collect(Collectors.toList()));
+        for (int i = 0; i < lines.size(); i++) {
+            Rating r = ratings.get(i);
+            out.println(lines.get(i) + " " + (r.valid ? r.hardest + " " + r.score : "INVALID"));
+        }
+        lines.clear();
+    }
+
+    static int[][] parse(String line) {
+        int[][] board = new int[SIZE][SIZE];
+        for (int i = 0; i < CELLS; i++) {
+            char c = line.charAt(i);
+            board[i / SIZE][i % SIZE] = c >= '1' && c <= '9' ? c - '0' : 0;
+        }
+        return board;
+    }
+}
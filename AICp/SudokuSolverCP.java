@@ -1,85 +1,111 @@
 package AICp;
-import java.awt.Point;
-import java.util.*;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 
-public class SudokuSolverCP {
-    private static final int SIZE = 9;
-    private static final int SUBGRID_SIZE = 3;
-    private static Set<Integer>[][] domains;
-    private static int[][] grid;
+/**
+ * Domains per cell, narrowed by AC-3 once and then by forward checking at
+ * each placement, plus hidden singles (a digit with one place left in a unit)
+ * at every node; the search branches on the cell with the smallest domain.
+ * The backtracking search is a {@link SteppedSearch}: frame
+ * d holds the cell filled at depth d, the values not yet tried there and
+ * where its domain changes start on the change trail, which is what a
+ * failed value rolls back.
+ */
+public class SudokuSolverCP extends SteppedSearch {
+    private final int SIZE;
+    // Bit d-1 of domains[cell] is set while digit d is still possible for that cell
+    private long[] domains;
+    private final int[][] neighbors;
+    // Domains overwritten since the search began, oldest first, so they can be restored
+    private int[] changedCell = new int[64];
+    private long[] changedDomain = new long[64];
+    private int changes;
+    private final int[] cell;
+    private final long[] untried;
+    private final int[] changeStart;
+    private int depth;
+    private boolean entering = true; // no cell chosen at depth yet
 
-    public static boolean solveSudokuConstraint(int[][] inputGrid) {
-        grid = inputGrid;
-        initializeDomains();
+    private SudokuSolverCP(int[][] inputGrid, ConstraintModel model) {
+        super(inputGrid, model, "Constraint Programming");
+        SIZE = inputGrid.length;
+        neighbors = model.peers;
+        int frames = SIZE * SIZE + 1;
+        cell = new int[frames];
+        untried = new long[frames];
+        changeStart = new int[frames];
         // Only modify grid during backtracking, not during AC-3
-        return ac3() && backtrack();
+        if (!initializeDomains() || !ac3()) state = State.UNSOLVABLE;
     }
 
-    private static void initializeDomains() {
-        domains = new HashSet[SIZE][SIZE];
-        for (int row = 0; row < SIZE; row++) {
-            for (int col = 0; col < SIZE; col++) {
-                domains[row][col] = new HashSet<>();
-                if (grid[row][col] == 0) {
-                    // Initialize with valid values only
-                    for (int num = 1; num <= SIZE; num++) {
-                        if (isValidInitial(num, row, col)) {
-                            domains[row][col].add(num);
-                        }
-                    }
-                } else {
-                    domains[row][col].add(grid[row][col]);
-                }
-            }
-        }
+    public static boolean solveSudokuConstraint(int[][] inputGrid) {
+        return solveSudokuConstraint(inputGrid, ConstraintModel.classic(inputGrid.length));
     }
 
-    // New method to check initial validity
-    private static boolean isValidInitial(int num, int row, int col) {
-        // Check row
-        for (int i = 0; i < SIZE; i++) {
-            if (grid[row][i] == num) return false;
-        }
-        // Check column
-        for (int i = 0; i < SIZE; i++) {
-            if (grid[i][col] == num) return false;
+    /**
+     * Solves the grid in-place under the rules of a variant.
+     */
+    public static boolean solveSudokuConstraint(int[][] inputGrid, ConstraintModel model) {
+        SolverEvents.Solve event = SolverEvents.begin("Constraint Programming", inputGrid);
+        boolean solved = new SudokuSolverCP(inputGrid, model).run() == State.SOLVED;
+        SolverEvents.end(event, solved);
+        return solved;
+    }
+
+    /**
+     * A constraint programming solve of inputGrid under model that runs a
+     * slice at a time. Domains are set up and AC-3 run here; the steps do
+     * the backtracking.
+     */
+    public static SteppedSearch search(int[][] inputGrid, ConstraintModel model) {
+        return new SudokuSolverCP(inputGrid, model);
+    }
+
+    private boolean initializeDomains() {
+        domains = new long[SIZE * SIZE];
+        long all = SudokuLogicBackTracking.allDigits(SIZE);
+        for (int cell = 0; cell < SIZE * SIZE; cell++) {
+            int value = grid[cell];
+            domains[cell] = value == 0 ? all : 1L << (value - 1);
         }
-        // Check box
-        int startRow = row - row % SUBGRID_SIZE;
-        int startCol = col - col % SUBGRID_SIZE;
-        for (int i = 0; i < SUBGRID_SIZE; i++) {
-            for (int j = 0; j < SUBGRID_SIZE; j++) {
-                if (grid[i + startRow][j + startCol] == num) return false;
+        for (int cell = 0; cell < SIZE * SIZE; cell++) {
+            int value = grid[cell];
+            if (value == 0) continue;
+            if (!model.cageAllows(grid, cell, value)) return false; // cage sum out of reach
+            for (int neighbor : neighbors[cell]) {
+                if (grid[neighbor] == value) return false; // clashing givens
+                // Initialize empty cells with valid values only
+                domains[neighbor] &= ~(1L << (value - 1));
             }
         }
         return true;
     }
 
-    private static boolean ac3() {
-        Queue<Arc> queue = new LinkedList<>();
-        
+    private boolean ac3() {
+        // Arcs are encoded as source * cells + target
+        int cells = SIZE * SIZE;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+
         // Initialize queue with all arcs
-        for (int row = 0; row < SIZE; row++) {
-            for (int col = 0; col < SIZE; col++) {
-                if (grid[row][col] == 0) {
-                    for (Point neighbor : getNeighbors(row, col)) {
-                        queue.add(new Arc(new Point(row, col), neighbor));
-                    }
+        for (int cell = 0; cell < cells; cell++) {
+            if (grid[cell] == 0) {
+                for (int neighbor : neighbors[cell]) {
+                    queue.add(cell * cells + neighbor);
                 }
             }
         }
 
         while (!queue.isEmpty()) {
-            Arc arc = queue.poll();
-            if (revise(arc)) {
-                Point source = arc.source;
-                if (domains[source.x][source.y].isEmpty()) {
+            int arc = queue.poll();
+            int source = arc / cells, target = arc % cells;
+            if (revise(source, target)) {
+                if (domains[source] == 0) {
                     return false;
                 }
                 // Don't modify grid during AC-3, only update domains
-                for (Point neighbor : getNeighbors(source.x, source.y)) {
-                    if (!neighbor.equals(arc.target)) {
-                        queue.add(new Arc(neighbor, source));
+                for (int neighbor : neighbors[source]) {
+                    if (neighbor != target) {
+                        queue.add(neighbor * cells + source);
                     }
                 }
             }
@@ -87,48 +113,41 @@ public class SudokuSolverCP {
         return true;
     }
 
-    private static boolean revise(Arc arc) {
-        boolean revised = false;
-        Point source = arc.source;
-        Point target = arc.target;
-        
-        Set<Integer> toRemove = new HashSet<>();
-        for (int x : domains[source.x][source.y]) {
-            boolean hasValidValue = false;
-            for (int y : domains[target.x][target.y]) {
-                if (isConsistent(x, y, source, target)) {
-                    hasValidValue = true;
-                    break;
-                }
-            }
-            if (!hasValidValue) {
-                toRemove.add(x);
-                revised = true;
-            }
+    /**
+     * With "not equal" constraints a source value loses its support only when
+     * the target's domain is exactly that value.
+     */
+    private boolean revise(int source, int target) {
+        long targetDomain = domains[target];
+        if (Long.bitCount(targetDomain) == 1 && (domains[source] & targetDomain) != 0) {
+            domains[source] &= ~targetDomain;
+            return true;
         }
-        
-        domains[source.x][source.y].removeAll(toRemove);
-        return revised;
+        return false;
     }
 
-    private static boolean forwardCheck(int row, int col) {
-        Map<Point, Set<Integer>> removedValues = new HashMap<>();
-        
-        for (Point neighbor : getNeighbors(row, col)) {
-            if (grid[neighbor.x][neighbor.y] == 0) {
-                if (!removedValues.containsKey(neighbor)) {
-                    removedValues.put(neighbor, new HashSet<>());
+    private boolean forwardCheck(int cell, long bit) {
+        for (int neighbor : neighbors[cell]) {
+            if (grid[neighbor] == 0) {
+                long domain = domains[neighbor] & ~bit;
+                if (domain != domains[neighbor]) setDomain(neighbor, domain);
+                if (domain == 0) {
+                    return false; // caller rolls back the change trail
                 }
-                if (domains[neighbor.x][neighbor.y].contains(grid[row][col])) {
-                    removedValues.get(neighbor).add(grid[row][col]);
-                    domains[neighbor.x][neighbor.y].remove(grid[row][col]);
+            }
+        }
+        int cage = model.cageOf[cell];
+        if (cage >= 0) {
+            // Drop digits that would leave the cage sum out of reach
+            for (int mate : model.cages[cage]) {
+                if (grid[mate] != 0) continue;
+                long domain = domains[mate];
+                for (long rest = domain; rest != 0; rest &= rest - 1) {
+                    long option = rest & -rest;
+                    if (!model.cageAllows(grid, mate, Long.numberOfTrailingZeros(option) + 1)) domain &= ~option;
                 }
-                if (domains[neighbor.x][neighbor.y].isEmpty()) {
-                    // Restore removed values before returning false
-                    for (Map.Entry<Point, Set<Integer>> entry : removedValues.entrySet()) {
-                        Point p = entry.getKey();
-                        domains[p.x][p.y].addAll(entry.getValue());
-                    }
+                if (domain != domains[mate]) setDomain(mate, domain);
+                if (domain == 0) {
                     return false;
                 }
             }
@@ -136,113 +155,130 @@ public class SudokuSolverCP {
         return true;
     }
 
-    // Rest of the methods remain the same
-    private static boolean isConsistent(int value1, int value2, Point pos1, Point pos2) {
-        if (pos1.x == pos2.x || pos1.y == pos2.y) {
-            return value1 != value2;
-        }
-        
-        int subgridRow1 = pos1.x / SUBGRID_SIZE;
-        int subgridCol1 = pos1.y / SUBGRID_SIZE;
-        int subgridRow2 = pos2.x / SUBGRID_SIZE;
-        int subgridCol2 = pos2.y / SUBGRID_SIZE;
-        
-        if (subgridRow1 == subgridRow2 && subgridCol1 == subgridCol2) {
-            return value1 != value2;
+    private void setDomain(int cell, long domain) {
+        if (changes == changedCell.length) {
+            changedCell = Arrays.copyOf(changedCell, changes * 2);
+            changedDomain = Arrays.copyOf(changedDomain, changes * 2);
         }
-        
-        return true;
+        changedCell[changes] = cell;
+        changedDomain[changes++] = domains[cell];
+        domains[cell] = domain;
     }
 
-    private static boolean backtrack() {
-        Point emptyCell = findEmptyCell();
-        if (emptyCell == null) {
-            return true;
+    private void rollback(int to) {
+        while (changes > to) {
+            changes--;
+            domains[changedCell[changes]] = changedDomain[changes];
         }
+    }
 
-        int row = emptyCell.x;
-        int col = emptyCell.y;
-
-        for (int num : new HashSet<>(domains[row][col])) {
-            if (isValid(num, row, col)) {
-                grid[row][col] = num;
-                Set<Integer> oldDomain = new HashSet<>(domains[row][col]);
-                domains[row][col] = new HashSet<>(Collections.singleton(num));
-                
-                if (forwardCheck(row, col) && backtrack()) {
-                    return true;
+    @Override
+    State search(long budget) {
+        while (true) {
+            if (entering) {
+                if (budget-- == 0) return State.SUSPENDED;
+                nodes.tick();
+                // A failed node's narrowing is rolled back with its parent's value
+                if (!hiddenSingles()) {
+                    if (--depth < 0) return State.UNSOLVABLE;
+                    entering = false;
+                    continue;
                 }
-                
-                grid[row][col] = 0;
-                domains[row][col] = oldDomain;
+                int empty = findEmptyCell();
+                if (empty < 0) {
+                    return State.SOLVED;
+                }
+                cell[depth] = empty;
+                untried[depth] = domains[empty];
+                changeStart[depth] = changes;
+                entering = false;
             }
-        }
-        return false;
-    }
 
-    private static boolean isValid(int num, int row, int col) {
-        for (int i = 0; i < SIZE; i++) {
-            if ((i != col && grid[row][i] == num) || 
-                (i != row && grid[i][col] == num)) {
-                return false;
+            int at = cell[depth];
+            if (grid[at] != 0) { // the value tried here failed below
+                grid[at] = 0;
+                rollback(changeStart[depth]);
             }
-        }
-        
-        int startRow = row - row % SUBGRID_SIZE;
-        int startCol = col - col % SUBGRID_SIZE;
-        for (int i = 0; i < SUBGRID_SIZE; i++) {
-            for (int j = 0; j < SUBGRID_SIZE; j++) {
-                if ((startRow + i != row || startCol + j != col) && 
-                    grid[i + startRow][j + startCol] == num) {
-                    return false;
+            while (untried[depth] != 0) {
+                long bit = untried[depth] & -untried[depth];
+                untried[depth] ^= bit;
+                int num = Long.numberOfTrailingZeros(bit) + 1;
+                if (isValid(num, at)) {
+                    grid[at] = num;
+                    setDomain(at, bit);
+                    if (forwardCheck(at, bit)) {
+                        entering = true;
+                        break;
+                    }
+                    grid[at] = 0;
+                    rollback(changeStart[depth]);
                 }
             }
+            if (entering) depth++;
+            else if (--depth < 0) return State.UNSOLVABLE;
         }
-        return true;
     }
 
-    // Other supporting methods remain the same
-    private static class Arc {
-        Point source;
-        Point target;
-
-        Arc(Point source, Point target) {
-            this.source = source;
-            this.target = target;
+    /**
+     * Narrows to d the domain of any cell that is the only place left for d
+     * in one of its units, so it is branched on next. Returns false if some
+     * unit has a digit with no place, or a cell that is the only place for
+     * two digits.
+     */
+    private boolean hiddenSingles() {
+        long all = SudokuLogicBackTracking.allDigits(SIZE);
+        for (int[] unit : model.units) {
+            long once = 0, twice = 0, placed = 0;
+            for (int c : unit) {
+                if (grid[c] != 0) {
+                    placed |= 1L << (grid[c] - 1);
+                } else {
+                    twice |= once & domains[c];
+                    once |= domains[c];
+                }
+            }
+            if ((once | placed) != all) return false;
+            long singles = once & ~twice & ~placed;
+            for (int i = 0; i < unit.length && singles != 0; i++) {
+                int c = unit[i];
+                if (grid[c] != 0) continue;
+                long hit = domains[c] & singles;
+                if (Long.bitCount(hit) > 1) return false;
+                if (hit != 0) {
+                    if (domains[c] != hit) setDomain(c, hit);
+                    singles &= ~hit;
+                }
+            }
         }
+        return true;
     }
 
-    private static Point findEmptyCell() {
-        for (int row = 0; row < SIZE; row++) {
-            for (int col = 0; col < SIZE; col++) {
-                if (grid[row][col] == 0) {
-                    return new Point(row, col);
-                }
+    private boolean isValid(int num, int cell) {
+        for (int neighbor : neighbors[cell]) {
+            if (grid[neighbor] == num) {
+                return false;
             }
         }
-        return null;
+        return model.cageAllows(grid, cell, num);
     }
 
-    private static Set<Point> getNeighbors(int row, int col) {
-        Set<Point> neighbors = new HashSet<>();
-        
-        for (int i = 0; i < SIZE; i++) {
-            if (i != col) neighbors.add(new Point(row, i));
-        }
-        
-        for (int i = 0; i < SIZE; i++) {
-            if (i != row) neighbors.add(new Point(i, col));
-        }
-        
-        int startRow = row - row % SUBGRID_SIZE;
-        int startCol = col - col % SUBGRID_SIZE;
-        for (int r = 0; r < SUBGRID_SIZE; r++) {
-            for (int c = 0; c < SUBGRID_SIZE; c++) {
-                if (startRow + r != row || startCol + c != col) {
-                    neighbors.add(new Point(startRow + r, startCol + c));
+    /**
+     * The empty cell with the smallest domain (first on ties), or -1 when
+     * the grid is full. Forward checking keeps the domains current, so this
+     * is one popcount per empty cell.
+     */
+    private int findEmptyCell() {
+        int best = -1, bestSize = Integer.MAX_VALUE;
+        for (int cell = 0; cell < SIZE * SIZE; cell++) {
+            if (grid[cell] == 0) {
+                int size = Long.bitCount(domains[cell]);
+                if (size < bestSize) {
+                    best = cell;
+                    bestSize = size;
+                    if (size <= 1) break; // forced, or a dead end to back out of
                 }
             }
         }
-        return neighbors;
+        return best;
     }
-}
\ No newline at end of file
+}
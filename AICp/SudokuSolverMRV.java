@@ -1,225 +1,289 @@
 package AICp;
 
-import java.util.*;
-
 public class SudokuSolverMRV {
-    private static final int SIZE = 9;
-    
+
     /**
      * Solves the given Sudoku board in-place.
-     * @param board 9x9 Sudoku board where 0 represents empty cells
+     * @param board NxN Sudoku board (N = 9, 16, 25 or 36) where 0 represents empty cells
      * @return true if a solution was found, false otherwise
      */
     public static boolean solve(int[][] board) {
-        // First, try to fill obvious cells
-        boolean progress;
-        do {
-            progress = false;
-            // Fill single possibilities
-            for (int i = 0; i < SIZE; i++) {
-                for (int j = 0; j < SIZE; j++) {
-                    if (board[i][j] == 0) {
-                        List<Integer> possibleValues = getPossibleValues(board, i, j);
-                        if (possibleValues.size() == 1) {
-                            board[i][j] = possibleValues.get(0);
-                            progress = true;
-                        }
-                    }
-                }
-            }
-            
-            // Check for hidden singles in rows, columns, and boxes
-            progress |= fillHiddenSingles(board);
-            
-        } while (progress);
-
-        // Then use backtracking with MRV for remaining cells
-        int[] cell = findMRV(board);
-        if (cell == null) {
-            return isComplete(board);
-        }
+        return solve(board, ConstraintModel.classic(board.length), null);
+    }
 
-        int row = cell[0], col = cell[1];
-        List<Integer> possibleValues = getPossibleValues(board, row, col);
-        Collections.sort(possibleValues); // Try values in ascending order for consistency
+    /**
+     * Same as {@link #solve(int[][])}, recording every placement and undo
+     * into trace when it is not null.
+     */
+    public static boolean solve(int[][] board, SearchTrace trace) {
+        return solve(board, ConstraintModel.classic(board.length), trace);
+    }
 
-        for (int value : possibleValues) {
-            if (isValid(board, row, col, value)) {
-                board[row][col] = value;
-                if (solve(board)) {
-                    return true;
-                }
-                board[row][col] = 0; // Backtrack
-            }
-        }
-        return false;
+    /**
+     * Solves the board in-place under the rules of a variant.
+     */
+    public static boolean solve(int[][] board, ConstraintModel model) {
+        return solve(board, model, null);
     }
 
-    private static boolean fillHiddenSingles(int[][] board) {
-        boolean progress = false;
-        
-        // Check rows
-        for (int row = 0; row < SIZE; row++) {
-            progress |= findHiddenSinglesInUnit(board, row, true);
-        }
-        
-        // Check columns
-        for (int col = 0; col < SIZE; col++) {
-            progress |= findHiddenSinglesInUnit(board, col, false);
-        }
-        
-        // Check 3x3 boxes
-        for (int box = 0; box < SIZE; box++) {
-            progress |= findHiddenSinglesInBox(board, (box / 3) * 3, (box % 3) * 3);
-        }
-        
-        return progress;
+    public static boolean solve(int[][] board, ConstraintModel model, SearchTrace trace) {
+        return solve(board, model, trace, null);
     }
 
-    private static boolean findHiddenSinglesInUnit(int[][] board, int index, boolean isRow) {
-        boolean progress = false;
-        for (int num = 1; num <= SIZE; num++) {
-            int count = 0;
-            int lastPos = -1;
-            
-            for (int i = 0; i < SIZE; i++) {
-                int value = isRow ? board[index][i] : board[i][index];
-                if (value == 0 && isValid(board, isRow ? index : i, isRow ? i : index, num)) {
-                    count++;
-                    lastPos = i;
-                }
-            }
-            
-            if (count == 1) {
-                if (isRow) {
-                    board[index][lastPos] = num;
-                } else {
-                    board[lastPos][index] = num;
+    /**
+     * Solves the board in-place, recording dead ends in nogoods so that later
+     * solves given the same table skip them. With a null table none are
+     * kept: a depth-first solve never reaches the same board twice, so
+     * nogoods only pay off across solves.
+     */
+    public static boolean solve(int[][] board, ConstraintModel model, SearchTrace trace, NogoodTable nogoods) {
+        SolverEvents.Solve event = SolverEvents.begin("MRV", board);
+        Search search = new Search(board, model, trace, nogoods);
+        if (trace != null) trace.begin(board);
+        boolean solved = search.run() == SteppedSearch.State.SOLVED;
+        if (trace != null) trace.end(board);
+        SolverEvents.end(event, solved);
+        return solved;
+    }
+
+    /**
+     * An MRV solve of board under model that runs a slice at a time; see
+     * {@link SteppedSearch}.
+     */
+    public static SteppedSearch search(int[][] board, ConstraintModel model) {
+        return search(board, model, null);
+    }
+
+    /**
+     * Same as {@link #search(int[][], ConstraintModel)}, sharing the
+     * caller's nogood table when it is not null.
+     */
+    public static SteppedSearch search(int[][] board, ConstraintModel model, NogoodTable nogoods) {
+        return new Search(board, model, null, nogoods);
+    }
+
+    /**
+     * Frame d holds the cell branched on at depth d, the candidates not yet
+     * tried there, where the cells that level propagated start on the shared
+     * trail, and the board's Zobrist hash on entry and after propagation.
+     * A board that ends up with no solution, before or after propagation,
+     * goes into the caller's nogood table, if any, and a later solve given
+     * the same table backs out of it at once.
+     */
+    private static final class Search extends SteppedSearch {
+        private final SearchTrace trace;
+        // Bit d-1 of used[u] is set when digit d is already placed in unit u
+        private final long[] used;
+        // Cells filled by propagation, level by level, so a level can be undone on failure
+        private final int[] trail;
+        private int filled;
+        private final int[] cell;
+        private final long[] untried;
+        private final int[] trailStart;
+        private final long[] entryHash;
+        private final long[] propagatedHash;
+        private int depth;
+        private boolean entering = true; // the node at depth has not been propagated yet
+
+        Search(int[][] board, ConstraintModel model, SearchTrace trace, NogoodTable nogoods) {
+            super(board, model, "MRV", nogoods);
+            this.trace = trace;
+            used = new long[model.units.length];
+            for (int c = 0; c < grid.length; c++) {
+                if (grid[c] != 0) {
+                    for (int u : model.unitsOf[c]) used[u] |= 1L << (grid[c] - 1);
                 }
-                progress = true;
             }
+            int frames = grid.length + 1;
+            trail = new int[grid.length];
+            cell = new int[frames];
+            untried = new long[frames];
+            trailStart = new int[frames];
+            entryHash = new long[frames];
+            propagatedHash = new long[frames];
+            entryHash[0] = model.hash(grid);
+            if (!model.consistent(grid)) state = State.UNSOLVABLE; // clashing givens
         }
-        return progress;
-    }
 
-    private static boolean findHiddenSinglesInBox(int[][] board, int startRow, int startCol) {
-        boolean progress = false;
-        for (int num = 1; num <= SIZE; num++) {
-            int count = 0;
-            int lastRow = -1;
-            int lastCol = -1;
-            
-            for (int i = 0; i < 3; i++) {
-                for (int j = 0; j < 3; j++) {
-                    if (board[startRow + i][startCol + j] == 0 && 
-                        isValid(board, startRow + i, startCol + j, num)) {
-                        count++;
-                        lastRow = startRow + i;
-                        lastCol = startCol + j;
+        @Override
+        State search(long budget) {
+            while (true) {
+                if (entering) {
+                    if (budget-- == 0) return State.SUSPENDED;
+                    nodes.tick();
+                    if (!enter()) {
+                        if (--depth < 0) return State.UNSOLVABLE; // back to the parent's next value
+                    } else if (cell[depth] < 0) {
+                        return State.SOLVED; // every cell filled, and only consistent digits were ever placed
                     }
+                    entering = false;
                 }
-            }
-            
-            if (count == 1) {
-                board[lastRow][lastCol] = num;
-                progress = true;
+                int c = cell[depth];
+                if (grid[c] != 0) {
+                    if (trace != null) trace.undo(c, grid[c]);
+                    remove(grid, model, used, c); // Backtrack
+                }
+                if (untried[depth] == 0) {
+                    addNogood(propagatedHash[depth]);
+                    undo(grid, model, used, trail, trailStart[depth], filled, trace);
+                    filled = trailStart[depth];
+                    addNogood(entryHash[depth]);
+                    if (--depth < 0) return State.UNSOLVABLE;
+                    continue;
+                }
+                // Try values in ascending order for consistency
+                long bit = untried[depth] & -untried[depth];
+                untried[depth] ^= bit;
+                place(grid, model, used, c, bit);
+                if (trace != null) trace.place(c, grid[c]);
+                entryHash[depth + 1] = propagatedHash[depth] ^ model.key(c, grid[c]);
+                depth++;
+                entering = true;
             }
         }
-        return progress;
-    }
 
-    private static boolean isComplete(int[][] board) {
-        for (int i = 0; i < SIZE; i++) {
-            for (int j = 0; j < SIZE; j++) {
-                if (board[i][j] == 0 || !isValid(board, i, j, board[i][j])) {
-                    return false;
+        /**
+         * Fills the obvious cells and sets up the frame at the current depth,
+         * with cell -1 if the board is complete. Returns false, with the
+         * propagation undone, if the board is a dead end.
+         */
+        private boolean enter() {
+            long hash = entryHash[depth];
+            if (isNogood(hash)) return false;
+            int start = filled;
+            trailStart[depth] = start;
+            boolean progress;
+            do {
+                progress = false;
+                // Fill single possibilities
+                for (int c = 0; c < grid.length; c++) {
+                    if (grid[c] == 0) {
+                        long possibleValues = model.candidates(grid, used, c);
+                        if (possibleValues == 0) return deadEnd(start, hash);
+                        if (Long.bitCount(possibleValues) == 1) {
+                            place(grid, model, used, c, possibleValues);
+                            trail[filled++] = c;
+                            if (trace != null) trace.propagate(c, grid[c]);
+                            progress = true;
+                        }
+                    }
                 }
-            }
-        }
-        return true;
-    }
 
-    private static boolean isValid(int[][] board, int row, int col, int num) {
-        // Check row
-        for (int x = 0; x < SIZE; x++) {
-            if (x != col && board[row][x] == num) return false;
-        }
+                // Check for hidden singles in every unit
+                int before = filled;
+                filled = fillHiddenSingles(grid, model, used, trail, filled, trace);
+                if (filled < 0) {
+                    filled = -filled - 1;
+                    return deadEnd(start, hash);
+                }
+                progress |= filled > before;
+            } while (progress);
 
-        // Check column
-        for (int x = 0; x < SIZE; x++) {
-            if (x != row && board[x][col] == num) return false;
+            long propagated = hash;
+            for (int k = start; k < filled; k++) propagated ^= model.key(trail[k], grid[trail[k]]);
+            if (filled > start && isNogood(propagated)) return deadEnd(start, hash);
+            propagatedHash[depth] = propagated;
+            cell[depth] = findMRV(grid, model, used);
+            if (cell[depth] >= 0) untried[depth] = model.candidates(grid, used, cell[depth]);
+            return true;
         }
 
-        // Check 3x3 box
-        int startRow = row - row % 3;
-        int startCol = col - col % 3;
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                if ((startRow + i != row || startCol + j != col) && 
-                    board[startRow + i][startCol + j] == num) return false;
-            }
+        private boolean deadEnd(int start, long hash) {
+            undo(grid, model, used, trail, start, filled, trace);
+            filled = start;
+            addNogood(hash);
+            return false;
         }
-
-        return true;
     }
 
-    private static int[] findMRV(int[][] board) {
-        int minOptions = Integer.MAX_VALUE;
-        int[] cell = null;
-
-        for (int i = 0; i < SIZE; i++) {
-            for (int j = 0; j < SIZE; j++) {
-                if (board[i][j] == 0) {
-                    List<Integer> possibleValues = getPossibleValues(board, i, j);
-                    int options = possibleValues.size();
-                    if (options == 0) {
-                        continue;  // Skip cells with no valid options
-                    }
-                    if (options < minOptions) {
-                        minOptions = options;
-                        cell = new int[]{i, j};
-                    } else if (options == minOptions) {
-                        // Use Degree Heuristic if MRV is tied
-                        if (cell != null && getDegree(board, i, j) > getDegree(board, cell[0], cell[1])) {
-                            cell = new int[]{i, j};
-                        }
-                    }
+    /**
+     * Places every hidden single it finds and returns the new trail length,
+     * or -(length + 1) if some unit has a digit that fits nowhere.
+     */
+    private static int fillHiddenSingles(int[] grid, ConstraintModel model, long[] used,
+                                         int[] trail, int filled, SearchTrace trace) {
+        long all = SudokuLogicBackTracking.allDigits(model.size);
+        for (int[] unit : model.units) {
+            long once = 0, twice = 0, placed = 0;
+            for (int cell : unit) {
+                if (grid[cell] != 0) {
+                    placed |= 1L << (grid[cell] - 1);
+                } else {
+                    long possible = model.candidates(grid, used, cell);
+                    twice |= once & possible;
+                    once |= possible;
+                }
+            }
+            if ((once | placed) != all) {
+                return -filled - 1;
+            }
+            long singles = once & ~twice & ~placed;
+            for (int i = 0; i < unit.length && singles != 0; i++) {
+                int cell = unit[i];
+                if (grid[cell] != 0) continue;
+                long hit = model.candidates(grid, used, cell) & singles;
+                if (Long.bitCount(hit) > 1) {
+                    return -filled - 1; // one cell is the only home of two digits
+                }
+                if (hit != 0) {
+                    place(grid, model, used, cell, hit);
+                    trail[filled++] = cell;
+                    if (trace != null) trace.propagate(cell, grid[cell]);
+                    singles &= ~hit;
                 }
             }
         }
-        return cell;
+        return filled;
     }
 
-    private static List<Integer> getPossibleValues(int[][] board, int row, int col) {
-        List<Integer> values = new ArrayList<>();
-        for (int num = 1; num <= SIZE; num++) {
-            if (isValid(board, row, col, num)) {
-                values.add(num);
-            }
-        }
-        return values;
+    private static void place(int[] grid, ConstraintModel model, long[] used, int cell, long bit) {
+        grid[cell] = Long.numberOfTrailingZeros(bit) + 1;
+        for (int u : model.unitsOf[cell]) used[u] |= bit;
     }
 
-    private static int getDegree(int[][] board, int row, int col) {
-        Set<String> unfilledNeighbors = new HashSet<>();
+    private static void remove(int[] grid, ConstraintModel model, long[] used, int cell) {
+        long bit = 1L << (grid[cell] - 1);
+        for (int u : model.unitsOf[cell]) used[u] &= ~bit;
+        grid[cell] = 0;
+    }
 
-        // Check row and column
-        for (int i = 0; i < SIZE; i++) {
-            if (board[row][i] == 0) unfilledNeighbors.add(row + "," + i);
-            if (board[i][col] == 0) unfilledNeighbors.add(i + "," + col);
+    /**
+     * Clears the trail cells [from, to), newest first.
+     */
+    private static void undo(int[] grid, ConstraintModel model, long[] used, int[] trail, int from, int to,
+                             SearchTrace trace) {
+        for (int k = to - 1; k >= from; k--) {
+            if (trace != null) trace.undo(trail[k], grid[trail[k]]);
+            remove(grid, model, used, trail[k]);
         }
+    }
 
-        // Check 3x3 box
-        int startRow = row - row % 3;
-        int startCol = col - col % 3;
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                if (board[startRow + i][startCol + j] == 0) {
-                    unfilledNeighbors.add((startRow + i) + "," + (startCol + j));
+    private static int findMRV(int[] grid, ConstraintModel model, long[] used) {
+        int minOptions = Integer.MAX_VALUE;
+        int best = -1;
+
+        for (int cell = 0; cell < grid.length; cell++) {
+            if (grid[cell] == 0) {
+                int options = Long.bitCount(model.candidates(grid, used, cell));
+                if (options < minOptions) {
+                    minOptions = options;
+                    best = cell;
+                } else if (options == minOptions) {
+                    // Use Degree Heuristic if MRV is tied
+                    if (getDegree(grid, model, cell) > getDegree(grid, model, best)) {
+                        best = cell;
+                    }
                 }
             }
         }
+        return best;
+    }
 
-        return unfilledNeighbors.size();
+    private static int getDegree(int[] grid, ConstraintModel model, int cell) {
+        int unfilledNeighbors = 0;
+        for (int peer : model.peers[cell]) {
+            if (grid[peer] == 0) unfilledNeighbors++;
+        }
+        return unfilledNeighbors;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,560 @@
+package AICp;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * CDCL SAT solver over the standard Sudoku CNF encoding: one variable per
+ * (row, column, digit) (729 for 9x9), "at least one" and pairwise "at most
+ * one" clauses for every cell and for every digit in every row, column and
+ * box. Search uses two watched literals per clause, first-UIP clause
+ * learning, VSIDS branching with phase saving and Luby restarts, which keeps
+ * the heavy tails of plain backtracking out of the hardest puzzles.
+ *
+ * Literals are encoded as 2 * var for the positive and 2 * var + 1 for the
+ * negative literal. Givens and the eliminations they imply are fixed before
+ * the clauses are built, so satisfied clauses and false literals never enter
+ * the clause database.
+ */
+public class SudokuSolverSAT {
+    private static final int RESTART_BASE = 64;
+    private static final double VAR_DECAY = 0.95;
+    // Far above what any solvable 25x25 puzzle has needed; keeps a bad input from running forever
+    public static final long MAX_CONFLICTS = 2_000_000;
+
+    private final int size;
+    private final int numVars;
+    private boolean contradiction;
+    private long conflictsLeft;
+
+    // Per variable: 1 true, -1 false, 0 unassigned
+    private final byte[] value;
+    private final int[] level;
+    private final int[][] reason;
+    private final boolean[] phase;
+    private final boolean[] seen;
+
+    private final int[] trail;
+    private int trailSize;
+    private int propagated;
+    private int[] trailLimits = new int[16];
+    private int decisionLevel;
+
+    private final int[][][] watches;
+    private final int[] watchCount;
+
+    private final double[] activity;
+    private double varIncrement = 1;
+    private final int[] heap;
+    private final int[] heapIndex;
+    private int heapSize;
+
+    private int[] learnt = new int[16];
+    private int[] stack = new int[16];
+    private int[] toClear = new int[16];
+    private int toClearSize;
+
+    // Learnt clauses and their literal block distance (distinct decision levels)
+    private int[][] learnts = new int[64][];
+    private int[] learntLbd = new int[64];
+    private int learntCount;
+    private int maxLearnts;
+
+    private final SolverEvents.NodeCounter nodes = new SolverEvents.NodeCounter("SAT");
+
+    private SudokuSolverSAT(int[][] board) {
+        size = board.length;
+        SudokuLogicBackTracking.boxSize(size);
+        numVars = size * size * size;
+        value = new byte[numVars];
+        level = new int[numVars];
+        reason = new int[numVars][];
+        phase = new boolean[numVars];
+        seen = new boolean[numVars];
+        trail = new int[numVars];
+        watches = new int[2 * numVars][][];
+        watchCount = new int[2 * numVars];
+        activity = new double[numVars];
+        heap = new int[numVars];
+        heapIndex = new int[numVars];
+        Arrays.fill(heapIndex, -1);
+        // Branch on "cell holds digit" first; a digit choice propagates much further than ruling one out
+        Arrays.fill(phase, true);
+
+        fixGivens(board);
+        if (!contradiction) encode();
+        for (int v = 0; v < numVars; v++) {
+            if (value[v] == 0) heapInsert(v);
+        }
+        maxLearnts = Math.max(2000, numVars / 4);
+    }
+
+    /**
+     * Solves the given Sudoku board in-place.
+     * @param board NxN Sudoku board where 0 represents empty cells
+     * @return true if a solution was found, false otherwise
+     */
+    public static boolean solve(int[][] board) {
+        return solve(board, MAX_CONFLICTS);
+    }
+
+    /**
+     * Solves the board in-place, giving up after maxConflicts conflicts over
+     * all restarts. Giving up returns false and leaves the board as it was,
+     * the same as an unsolvable puzzle.
+     */
+    public static boolean solve(int[][] board, long maxConflicts) {
+        SolverEvents.Solve event = SolverEvents.begin("SAT", board);
+        SudokuSolverSAT solver = new SudokuSolverSAT(board);
+        solver.conflictsLeft = maxConflicts;
+        boolean solved = !solver.contradiction && solver.search();
+        if (solved) solver.writeSolution(board);
+        SolverEvents.end(event, solved);
+        return solved;
+    }
+
+    private int var(int row, int col, int digit) {
+        return (row * size + col) * size + digit;
+    }
+
+    private int litValue(int lit) {
+        int v = value[lit >> 1];
+        return (lit & 1) == 0 ? v : -v;
+    }
+
+    private void fixGivens(int[][] board) {
+        int box = SudokuLogicBackTracking.boxSize(size);
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                if (board[r][c] == 0) continue;
+                int d = board[r][c] - 1;
+                fix(2 * var(r, c, d));
+                for (int other = 0; other < size; other++) {
+                    if (other != d) fix(2 * var(r, c, other) + 1);
+                    if (other != c) fix(2 * var(r, other, d) + 1);
+                    if (other != r) fix(2 * var(other, c, d) + 1);
+                }
+                int br = r - r % box, bc = c - c % box;
+                for (int i = 0; i < size; i++) {
+                    int pr = br + i / box, pc = bc + i % box;
+                    if (pr != r || pc != c) fix(2 * var(pr, pc, d) + 1);
+                }
+            }
+        }
+    }
+
+    private void fix(int lit) {
+        int current = litValue(lit);
+        if (current == -1) contradiction = true;
+        else if (current == 0) enqueue(lit, null);
+    }
+
+    private void encode() {
+        int box = SudokuLogicBackTracking.boxSize(size);
+        int[] lits = new int[size];
+        for (int r = 0; r < size && !contradiction; r++) {
+            for (int c = 0; c < size; c++) {
+                for (int d = 0; d < size; d++) lits[d] = var(r, c, d);
+                exactlyOne(lits);
+            }
+        }
+        for (int d = 0; d < size && !contradiction; d++) {
+            for (int unit = 0; unit < size; unit++) {
+                for (int i = 0; i < size; i++) lits[i] = var(unit, i, d);
+                exactlyOne(lits);
+                for (int i = 0; i < size; i++) lits[i] = var(i, unit, d);
+                exactlyOne(lits);
+                int br = unit / box * box, bc = unit % box * box;
+                for (int i = 0; i < size; i++) lits[i] = var(br + i / box, bc + i % box, d);
+                exactlyOne(lits);
+            }
+        }
+    }
+
+    private void exactlyOne(int[] vars) {
+        int[] atLeastOne = new int[vars.length];
+        for (int i = 0; i < vars.length; i++) atLeastOne[i] = 2 * vars[i];
+        addClause(atLeastOne);
+        for (int i = 0; i < vars.length; i++) {
+            if (value[vars[i]] == -1) continue;
+            for (int j = i + 1; j < vars.length; j++) {
+                addClause(new int[]{2 * vars[i] + 1, 2 * vars[j] + 1});
+            }
+        }
+    }
+
+    /**
+     * Adds an input clause, dropping it if already satisfied and removing
+     * literals that are already false.
+     */
+    private void addClause(int[] lits) {
+        int n = 0;
+        for (int lit : lits) {
+            int v = litValue(lit);
+            if (v == 1) return;
+            if (v == 0) lits[n++] = lit;
+        }
+        if (n == 0) {
+            contradiction = true;
+        } else if (n == 1) {
+            enqueue(lits[0], null);
+        } else {
+            int[] clause = n == lits.length ? lits : Arrays.copyOf(lits, n);
+            watch(clause[0], clause);
+            watch(clause[1], clause);
+        }
+    }
+
+    private void watch(int lit, int[] clause) {
+        if (watches[lit] == null) {
+            watches[lit] = new int[4][];
+        } else if (watchCount[lit] == watches[lit].length) {
+            watches[lit] = Arrays.copyOf(watches[lit], watchCount[lit] * 2);
+        }
+        watches[lit][watchCount[lit]++] = clause;
+    }
+
+    private void enqueue(int lit, int[] from) {
+        int v = lit >> 1;
+        value[v] = (byte) ((lit & 1) == 0 ? 1 : -1);
+        level[v] = decisionLevel;
+        reason[v] = from;
+        trail[trailSize++] = lit;
+    }
+
+    /**
+     * Unit propagation over the watch lists; returns the conflicting clause,
+     * or null if everything propagated.
+     */
+    private int[] propagate() {
+        while (propagated < trailSize) {
+            int falseLit = trail[propagated++] ^ 1;
+            int[][] ws = watches[falseLit];
+            int count = watchCount[falseLit];
+            int i = 0, j = 0;
+            while (i < count) {
+                int[] clause = ws[i++];
+                // Keep the false literal in slot 1; slot 0 is the other watch
+                if (clause[0] == falseLit) {
+                    clause[0] = clause[1];
+                    clause[1] = falseLit;
+                }
+                if (litValue(clause[0]) == 1) {
+                    ws[j++] = clause;
+                    continue;
+                }
+                boolean moved = false;
+                for (int k = 2; k < clause.length; k++) {
+                    if (litValue(clause[k]) != -1) {
+                        clause[1] = clause[k];
+                        clause[k] = falseLit;
+                        watch(clause[1], clause);
+                        moved = true;
+                        break;
+                    }
+                }
+                if (moved) continue;
+                ws[j++] = clause;
+                if (litValue(clause[0]) == -1) {
+                    while (i < count) ws[j++] = ws[i++];
+                    watchCount[falseLit] = j;
+                    propagated = trailSize;
+                    return clause;
+                }
+                enqueue(clause[0], clause);
+            }
+            watchCount[falseLit] = j;
+        }
+        return null;
+    }
+
+    /**
+     * First-UIP conflict analysis. Leaves the learnt clause in learnt[0..n)
+     * with the asserting literal first and returns n, after dropping literals
+     * implied by the rest of the clause.
+     */
+    private int analyze(int[] conflict) {
+        int n = 1;
+        int pathCount = 0;
+        int lit = -1;
+        int index = trailSize - 1;
+        int[] clause = conflict;
+        do {
+            for (int k = lit == -1 ? 0 : 1; k < clause.length; k++) {
+                int q = clause[k];
+                int v = q >> 1;
+                if (!seen[v] && level[v] > 0) {
+                    bump(v);
+                    seen[v] = true;
+                    if (level[v] >= decisionLevel) {
+                        pathCount++;
+                    } else {
+                        if (n == learnt.length) learnt = Arrays.copyOf(learnt, n * 2);
+                        learnt[n++] = q;
+                    }
+                }
+            }
+            while (!seen[trail[index] >> 1]) index--;
+            lit = trail[index--];
+            clause = reason[lit >> 1];
+            seen[lit >> 1] = false;
+            pathCount--;
+        } while (pathCount > 0);
+        learnt[0] = lit ^ 1;
+
+        toClearSize = 0;
+        int levels = 0;
+        for (int k = 1; k < n; k++) {
+            markToClear(learnt[k]);
+            levels |= 1 << (level[learnt[k] >> 1] & 31);
+        }
+        int kept = 1;
+        for (int k = 1; k < n; k++) {
+            if (reason[learnt[k] >> 1] == null || !redundant(learnt[k], levels)) learnt[kept++] = learnt[k];
+        }
+        for (int k = 0; k < toClearSize; k++) seen[toClear[k] >> 1] = false;
+        return kept;
+    }
+
+    /**
+     * True if lit follows from literals already in the learnt clause, found by
+     * walking its implication graph. levels is a 32-bit signature of the
+     * clause's decision levels, used to give up early on foreign levels.
+     */
+    private boolean redundant(int lit, int levels) {
+        int top = toClearSize;
+        int depth = 0;
+        stack[depth++] = lit;
+        while (depth > 0) {
+            int[] clause = reason[stack[--depth] >> 1];
+            for (int k = 1; k < clause.length; k++) {
+                int q = clause[k];
+                int v = q >> 1;
+                if (seen[v] || level[v] == 0) continue;
+                if (reason[v] == null || (levels & 1 << (level[v] & 31)) == 0) {
+                    for (int i = top; i < toClearSize; i++) seen[toClear[i] >> 1] = false;
+                    toClearSize = top;
+                    return false;
+                }
+                markToClear(q);
+                if (depth == stack.length) stack = Arrays.copyOf(stack, depth * 2);
+                stack[depth++] = q;
+            }
+        }
+        return true;
+    }
+
+    private void markToClear(int lit) {
+        seen[lit >> 1] = true;
+        if (toClearSize == toClear.length) toClear = Arrays.copyOf(toClear, toClearSize * 2);
+        toClear[toClearSize++] = lit;
+    }
+
+    private boolean search() {
+        for (int restart = 1; ; restart++) {
+            long budget = (long) luby(restart) * RESTART_BASE;
+            long conflicts = 0;
+            while (true) {
+                int[] conflict = propagate();
+                if (conflict != null) {
+                    if (decisionLevel == 0 || conflictsLeft-- == 0) return false;
+                    conflicts++;
+                    learn(analyze(conflict));
+                    varIncrement /= VAR_DECAY;
+                } else if (conflicts >= budget) {
+                    cancelUntil(0);
+                    if (learntCount >= maxLearnts) reduceLearnts();
+                    break;
+                } else {
+                    int v = nextBranchVar();
+                    if (v < 0) return true;
+                    nodes.tick();
+                    if (decisionLevel == trailLimits.length) trailLimits = Arrays.copyOf(trailLimits, decisionLevel * 2);
+                    trailLimits[decisionLevel++] = trailSize;
+                    enqueue(2 * v + (phase[v] ? 0 : 1), null);
+                }
+            }
+        }
+    }
+
+    private void learn(int n) {
+        // Watch the literal from the highest remaining level as the second watch
+        int backtrackLevel = 0;
+        for (int k = 1; k < n; k++) {
+            if (level[learnt[k] >> 1] > level[learnt[1] >> 1]) {
+                int tmp = learnt[1];
+                learnt[1] = learnt[k];
+                learnt[k] = tmp;
+            }
+        }
+        if (n > 1) backtrackLevel = level[learnt[1] >> 1];
+        cancelUntil(backtrackLevel);
+        if (n == 1) {
+            enqueue(learnt[0], null);
+        } else {
+            int[] clause = Arrays.copyOf(learnt, n);
+            watch(clause[0], clause);
+            watch(clause[1], clause);
+            enqueue(clause[0], clause);
+            if (learntCount == learnts.length) {
+                learnts = Arrays.copyOf(learnts, learntCount * 2);
+                learntLbd = Arrays.copyOf(learntLbd, learntCount * 2);
+            }
+            learntLbd[learntCount] = lbd(clause);
+            learnts[learntCount++] = clause;
+        }
+    }
+
+    private int lbd(int[] clause) {
+        int distinct = 0;
+        for (int k = 0; k < clause.length; k++) {
+            int lv = level[clause[k] >> 1];
+            boolean repeat = false;
+            for (int j = 0; j < k && !repeat; j++) repeat = level[clause[j] >> 1] == lv;
+            if (!repeat) distinct++;
+        }
+        return distinct;
+    }
+
+    /**
+     * Forgets the worse half of the learnt clauses by LBD, keeping "glue"
+     * clauses (LBD 2 or less) for good. Only called at decision level 0,
+     * where no learnt clause is the reason for a live assignment that
+     * conflict analysis could visit.
+     */
+    private void reduceLearnts() {
+        Integer[] order = new Integer[learntCount];
+        for (int i = 0; i < learntCount; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> learntLbd[a] != learntLbd[b] ? learntLbd[a] - learntLbd[b]
+                : learnts[a].length - learnts[b].length);
+        Set<int[]> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        int[][] keptClauses = new int[learnts.length][];
+        int[] keptLbd = new int[learnts.length];
+        int kept = 0;
+        for (int i = 0; i < learntCount; i++) {
+            int c = order[i];
+            if (i < learntCount / 2 || learntLbd[c] <= 2) {
+                keptClauses[kept] = learnts[c];
+                keptLbd[kept++] = learntLbd[c];
+            } else {
+                removed.add(learnts[c]);
+            }
+        }
+        learnts = keptClauses;
+        learntLbd = keptLbd;
+        learntCount = kept;
+        maxLearnts += maxLearnts / 10;
+        if (removed.isEmpty()) return;
+        for (int lit = 0; lit < watches.length; lit++) {
+            if (watches[lit] == null) continue;
+            int j = 0;
+            for (int i = 0; i < watchCount[lit]; i++) {
+                if (!removed.contains(watches[lit][i])) watches[lit][j++] = watches[lit][i];
+            }
+            Arrays.fill(watches[lit], j, watchCount[lit], null);
+            watchCount[lit] = j;
+        }
+    }
+
+    private void cancelUntil(int target) {
+        if (decisionLevel <= target) return;
+        for (int i = trailSize - 1; i >= trailLimits[target]; i--) {
+            int v = trail[i] >> 1;
+            phase[v] = (trail[i] & 1) == 0;
+            value[v] = 0;
+            reason[v] = null;
+            if (heapIndex[v] < 0) heapInsert(v);
+        }
+        trailSize = trailLimits[target];
+        propagated = trailSize;
+        decisionLevel = target;
+    }
+
+    private int nextBranchVar() {
+        while (heapSize > 0) {
+            int v = heapRemoveMax();
+            if (value[v] == 0) return v;
+        }
+        return -1;
+    }
+
+    private void bump(int v) {
+        if ((activity[v] += varIncrement) > 1e100) {
+            for (int i = 0; i < numVars; i++) activity[i] *= 1e-100;
+            varIncrement *= 1e-100;
+        }
+        if (heapIndex[v] >= 0) siftUp(heapIndex[v]);
+    }
+
+    // Luby sequence 1, 1, 2, 1, 1, 2, 4, ...
+    private static int luby(int i) {
+        int k = 1;
+        while ((1 << k) - 1 < i) k++;
+        while (i != (1 << k) - 1) {
+            i -= (1 << (k - 1)) - 1;
+            k = 1;
+            while ((1 << k) - 1 < i) k++;
+        }
+        return 1 << (k - 1);
+    }
+
+    private void heapInsert(int v) {
+        heap[heapSize] = v;
+        heapIndex[v] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int heapRemoveMax() {
+        int top = heap[0];
+        heapIndex[top] = -1;
+        if (--heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int i) {
+        int v = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (activity[heap[parent]] >= activity[v]) break;
+            heap[i] = heap[parent];
+            heapIndex[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = v;
+        heapIndex[v] = i;
+    }
+
+    private void siftDown(int i) {
+        int v = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && activity[heap[child + 1]] > activity[heap[child]]) child++;
+            if (activity[heap[child]] <= activity[v]) break;
+            heap[i] = heap[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = v;
+        heapIndex[v] = i;
+    }
+
+    private void writeSolution(int[][] board) {
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                for (int d = 0; d < size; d++) {
+                    if (value[var(r, c, d)] == 1) {
+                        board[r][c] = d + 1;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package AICp;
+
+import java.util.Arrays;
+
+/**
+ * Maps a 9x9 board to a canonical representative under transposition, band
+ * and stack permutations and digit relabeling. Equivalent puzzles get the same
+ * canonical grid, and the returned transform maps solutions back and forth.
+ *
+ * This covers 72 of the 3,359,232 validity-preserving transforms: rows
+ * swapped within a band, or columns within a stack, give a different
+ * canonical grid. That keeps a cache lookup to 72 cheap scans; callers that
+ * need the full group use {@link MinlexCanonicalizer}, which is exact but
+ * slower.
+ */
+public class SudokuSymmetry {
+    private static final int SIZE = 9;
+    private static final int CELLS = SIZE * SIZE;
+    private static final int[][] PERMS3 = {
+        {0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0}
+    };
+
+    public static class Transform {
+        // canonical cell p holds the (relabeled) digit of original cell source[p]
+        final int[] source;
+        // canonical digit of original digit d is relabel[d]; relabel[0] == 0
+        final int[] relabel;
+        final String canonical;
+
+        Transform(int[] source, int[] relabel, String canonical) {
+            this.source = source;
+            this.relabel = relabel;
+            this.canonical = canonical;
+        }
+
+        public String canonical() {
+            return canonical;
+        }
+
+        public int[][] toCanonical(int[][] board) {
+            int[][] result = new int[SIZE][SIZE];
+            for (int p = 0; p < CELLS; p++) {
+                result[p / SIZE][p % SIZE] = relabel[board[source[p] / SIZE][source[p] % SIZE]];
+            }
+            return result;
+        }
+
+        public int[][] fromCanonical(int[][] canonicalBoard) {
+            int[] inverse = new int[SIZE + 1];
+            for (int d = 0; d <= SIZE; d++) {
+                inverse[relabel[d]] = d;
+            }
+            int[][] result = new int[SIZE][SIZE];
+            for (int p = 0; p < CELLS; p++) {
+                result[source[p] / SIZE][source[p] % SIZE] = inverse[canonicalBoard[p / SIZE][p % SIZE]];
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Tries all 72 combinations of transposition, band order and stack order
+     * (rows and columns keep their order inside them), relabels digits by
+     * first appearance, and keeps the lexicographically smallest grid.
+     */
+    public static Transform canonicalize(int[][] board) {
+        int[] flat = new int[CELLS];
+        for (int p = 0; p < CELLS; p++) {
+            flat[p] = board[p / SIZE][p % SIZE];
+        }
+
+        int[] best = null;
+        int[] bestSource = null;
+        int[] bestRelabel = null;
+        int[] source = new int[CELLS];
+        int[] relabel = new int[SIZE + 1];
+        int[] grid = new int[CELLS];
+
+        for (int transpose = 0; transpose < 2; transpose++) {
+            for (int[] bands : PERMS3) {
+                for (int[] stacks : PERMS3) {
+                    for (int p = 0; p < CELLS; p++) {
+                        int r = p / SIZE, c = p % SIZE;
+                        int srcRow = bands[r / 3] * 3 + r % 3;
+                        int srcCol = stacks[c / 3] * 3 + c % 3;
+                        source[p] = transpose == 0 ? srcRow * SIZE + srcCol : srcCol * SIZE + srcRow;
+                    }
+                    if (relabelAndCompare(flat, source, relabel, grid, best)) {
+                        best = grid.clone();
+                        bestSource = source.clone();
+                        bestRelabel = relabel.clone();
+                    }
+                }
+            }
+        }
+
+        // Digits that never appear still need a slot so the map is a bijection
+        int next = 1;
+        for (int d = 1; d <= SIZE; d++) {
+            if (bestRelabel[d] != 0) next = Math.max(next, bestRelabel[d] + 1);
+        }
+        for (int d = 1; d <= SIZE; d++) {
+            if (bestRelabel[d] == 0) bestRelabel[d] = next++;
+        }
+
+        StringBuilder sb = new StringBuilder(CELLS);
+        for (int v : best) {
+            sb.append((char) ('0' + v));
+        }
+        return new Transform(bestSource, bestRelabel, sb.toString());
+    }
+
+    /**
+     * Fills grid with the relabeled reading of source and returns true if it
+     * is smaller than best. Stops at the first cell that is already larger.
+     */
+    private static boolean relabelAndCompare(int[] flat, int[] source, int[] relabel, int[] grid, int[] best) {
+        Arrays.fill(relabel, 0);
+        int next = 1;
+        boolean smaller = best == null;
+        for (int p = 0; p < CELLS; p++) {
+            int d = flat[source[p]];
+            if (d != 0 && relabel[d] == 0) relabel[d] = next++;
+            int v = relabel[d];
+            grid[p] = v;
+            if (!smaller) {
+                if (v > best[p]) return false;
+                if (v < best[p]) smaller = true;
+            }
+        }
+        return smaller;
+    }
+}
@@ -0,0 +1,128 @@
+package AICp;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Steps through a {@link SearchTrace} on a board: decisions in green,
+ * propagated cells in blue, undos in red.
+ */
+public class TraceReplayDialog extends JDialog {
+    private static final Color[] EVENT_COLORS = {new Color(144, 238, 144), new Color(135, 206, 250), new Color(255, 160, 160)};
+    private static final String[] EVENT_NAMES = {"place", "propagate", "undo"};
+
+    private final SearchTrace trace;
+    private final int size;
+    private final int subgrid;
+    private final byte[] cells;
+    private final JLabel[] labels;
+    private final JSlider slider;
+    private final JLabel status = new JLabel();
+    private final Timer player;
+    private int position; // events applied so far
+
+    public TraceReplayDialog(Frame owner, SearchTrace trace) {
+        super(owner, "Search Trace", false);
+        this.trace = trace;
+        size = trace.boardSize();
+        subgrid = SudokuLogicBackTracking.boxSize(size);
+        cells = trace.startCells();
+        labels = new JLabel[size * size];
+
+        JPanel grid = new JPanel(new GridLayout(size, size));
+        for (int i = 0; i < size * size; i++) {
+            labels[i] = new JLabel("", SwingConstants.CENTER);
+            labels[i].setOpaque(true);
+            labels[i].setFont(new Font("Arial", Font.BOLD, size > 9 ? 12 : 18));
+            labels[i].setBorder(BorderFactory.createLineBorder(Color.GRAY));
+            grid.add(labels[i]);
+        }
+
+        slider = new JSlider(0, trace.retained(), 0);
+        slider.addChangeListener(e -> seek(slider.getValue()));
+        player = new Timer(30, e -> {
+            if (position >= trace.retained()) ((Timer) e.getSource()).stop();
+            else slider.setValue(position + 1);
+        });
+
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        addButton(controls, "<", () -> slider.setValue(Math.max(0, position - 1)));
+        addButton(controls, "Play", () -> {
+            if (player.isRunning()) player.stop();
+            else player.start();
+        });
+        addButton(controls, ">", () -> slider.setValue(Math.min(trace.retained(), position + 1)));
+        addButton(controls, "Save...", this::save);
+
+        JPanel bottom = new JPanel(new BorderLayout());
+        bottom.add(slider, BorderLayout.NORTH);
+        bottom.add(controls, BorderLayout.CENTER);
+        bottom.add(status, BorderLayout.SOUTH);
+
+        setLayout(new BorderLayout());
+        add(grid, BorderLayout.CENTER);
+        add(bottom, BorderLayout.SOUTH);
+        setSize(Math.max(600, size * 36), Math.max(680, size * 36 + 120));
+        setLocationRelativeTo(owner);
+        render();
+    }
+
+    private void addButton(JPanel panel, String text, Runnable action) {
+        JButton button = new JButton(text);
+        button.addActionListener(e -> action.run());
+        panel.add(button);
+    }
+
+    private void seek(int target) {
+        while (position < target) trace.apply(cells, position++, true);
+        while (position > target) trace.apply(cells, --position, false);
+        render();
+    }
+
+    private void render() {
+        int last = position > 0 ? trace.cell(position - 1) : -1;
+        for (int i = 0; i < size * size; i++) {
+            labels[i].setText(cells[i] == 0 ? "" : String.valueOf(cells[i]));
+            int row = i / size, col = i % size;
+            labels[i].setBackground(i == last ? EVENT_COLORS[trace.type(position - 1)]
+                    : (row / subgrid + col / subgrid) % 2 == 0 ? new Color(173, 216, 230) : Color.WHITE);
+        }
+        String text = "Step " + position + " / " + trace.retained();
+        if (trace.dropped() > 0) text += " (" + trace.dropped() + " earlier events dropped)";
+        if (last >= 0) {
+            text += ": " + EVENT_NAMES[trace.type(position - 1)] + " r" + (last / size + 1) + "c" + (last % size + 1)
+                    + " = " + trace.value(position - 1);
+        }
+        status.setText(text);
+    }
+
+    private void save() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        try (OutputStream out = new FileOutputStream(chooser.getSelectedFile())) {
+            trace.write(out);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Could not save trace: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Usage: java AICp.TraceReplayDialog trace.bin
+     */
+    public static void main(String[] args) throws IOException {
+        SearchTrace trace;
+        try (InputStream in = new FileInputStream(args[0])) {
+            trace = SearchTrace.read(in);
+        }
+        SwingUtilities.invokeLater(() -> {
+            TraceReplayDialog dialog = new TraceReplayDialog(null, trace);
+            dialog.setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+            dialog.setVisible(true);
+        });
+    }
+}
@@ -0,0 +1,80 @@
+package AICp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BiFunction;
+
+/**
+ * Interrupts each stepped search over and over, resuming it every time, and
+ * checks that it ends exactly like an uninterrupted solve: same state, same
+ * solution, and the same node count apart from the node re-entered after
+ * each interrupt. A search that loses its place on an interrupt skips part
+ * of the tree and fails at least the node count.
+ *
+ * Run with: java -cp bin AICp.SteppedSearchResumeTest (exits 1 on failure)
+ */
+public class SteppedSearchResumeTest {
+    // Needs thousands of nodes from each engine, so the interrupt check (every 1024 nodes) fires
+    private static final String ESCARGOT =
+            "1....7.9..3..2...8..96..5....53..9...1..8...26....4...3......1..4......7..7...3..";
+    private static final String HARD_16_MRV =
+            "..3:.........>.......98.?.1...=6..8....>6.....2....9@1....;2.8..@"
+            + "9.8?6.....;=..2.....34.>?.=65.9..?3..@.....4...5..21......9...>."
+            + "......=2.3.....:@9..45.<;..3...<...>?..=.......3...8:...@.1...?."
+            + ".:....<1..4........4...36..2..:..;....@...?...3....7.9:;.>.?..<";
+    private static final String HARD_16_CP =
+            "...6.;>7....@<.:....8.4....<6...>;..:...1....?.87.=....1.....4.5"
+            + "8.23.......1=.>.@...75.=3....:4....>..9..........1...863....?.;."
+            + "..@.........21...=>.@?...7..5.8.2..1.3.6.@....<.563...7.?..9...."
+            + "...@.....3..<...9.....2.46.....@.3.8.=?.......5..2.56.;<.....8.>";
+
+    public static void main(String[] args) {
+        int failures = 0;
+        failures += check("Backtracking", SudokuLogicBackTracking::search, ESCARGOT);
+        failures += check("MRV", SudokuSolverMRV::search, HARD_16_MRV);
+        failures += check("Constraint Programming", SudokuSolverCP::search, HARD_16_CP);
+        if (failures > 0) {
+            System.out.println(failures + " failure(s)");
+            System.exit(1);
+        }
+        System.out.println("All passed");
+    }
+
+    private static int check(String name, BiFunction<int[][], ConstraintModel, SteppedSearch> engine, String puzzle) {
+        int[][] expected = Board.parse(puzzle).toArray();
+        ConstraintModel model = ConstraintModel.classic(expected.length);
+        SteppedSearch reference = engine.apply(expected, model);
+        SteppedSearch.State expectedState = reference.run();
+
+        int[][] board = Board.parse(puzzle).toArray();
+        SteppedSearch search = engine.apply(board, model);
+        int interrupts = 0;
+        while (search.state() == SteppedSearch.State.SUSPENDED) {
+            Thread.currentThread().interrupt();
+            try {
+                search.run();
+            } catch (CancellationException e) {
+                interrupts++;
+            } finally {
+                Thread.interrupted();
+            }
+        }
+
+        List<String> problems = new ArrayList<>();
+        if (expectedState != SteppedSearch.State.SOLVED) problems.add("reference solve ended " + expectedState);
+        if (interrupts == 0) problems.add("never interrupted; the puzzle is too easy to test resuming");
+        if (search.state() != expectedState) problems.add("ended " + search.state() + ", expected " + expectedState);
+        if (!Arrays.deepEquals(board, expected)) problems.add("found a different solution");
+        if (search.nodes() != reference.nodes() + interrupts) {
+            problems.add(search.nodes() + " nodes, expected " + reference.nodes() + " + " + interrupts + " re-entered");
+        }
+        if (problems.isEmpty()) {
+            System.out.println(name + ": ok, resumed after " + interrupts + " interrupts");
+            return 0;
+        }
+        System.out.println(name + ": FAILED, " + String.join("; ", problems));
+        return 1;
+    }
+}